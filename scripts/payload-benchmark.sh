@@ -0,0 +1,37 @@
+#!/usr/bin/env bash
+# Compares the team overview as JSON, Smile and CBOR against a running instance: payload size (raw and
+# gzipped) and the median response time over a number of requests. The snapshot is warmed up first so no
+# upstream calls are timed, but each time still includes the curl round trip; BinaryFormatsConfigTest
+# measures the serialization alone, in process.
+#
+# Usage: scripts/payload-benchmark.sh [base-url] [team] [requests]
+# Requires curl, gzip, sort and bc.
+set -euo pipefail
+
+BASE_URL="${1:-http://localhost:8080}"
+TEAM="${2:-boble}"
+REQUESTS="${3:-50}"
+URL="${BASE_URL}/api/characters/overview/${TEAM}"
+
+# Warm-up: load the snapshot and let the JIT compile the serializers
+for i in $(seq 1 20); do
+  curl -fsS -o /dev/null "$URL"
+done
+
+measure() {
+  local label="$1" accept="$2" tmp raw gz times median
+  tmp=$(mktemp)
+  curl -fsS -H "Accept: ${accept}" -o "$tmp" "$URL"
+  raw=$(wc -c < "$tmp")
+  gz=$(gzip -c "$tmp" | wc -c)
+  rm -f "$tmp"
+  times=$(for i in $(seq 1 "$REQUESTS"); do
+    curl -fsS -o /dev/null -H "Accept: ${accept}" -w '%{time_total}\n' "$URL"
+  done | sort -n)
+  median=$(echo "$times" | sed -n "$(( (REQUESTS + 1) / 2 ))p")
+  printf '%-6s %9s bytes  %8s gzipped  median %8.2f ms\n' "$label" "$raw" "$gz" "$(echo "$median * 1000" | bc -l)"
+}
+
+measure json application/json
+measure smile application/x-jackson-smile
+measure cbor application/cbor
@@ -0,0 +1,54 @@
+#!/usr/bin/env bash
+# Measures time from "docker run" to the first successful /health and /api/characters/overview response.
+# Each run is done twice against the same image: once as a plain JVM start ("before": no AOT code,
+# no application CDS archive) and once with the image defaults ("after": AOT + CDS, see Dockerfile).
+#
+# Usage: scripts/startup-benchmark.sh [image] [team] [runs]
+# BLIZZARD_* and WARCRAFTLOGS_* credentials are passed through from the environment so the
+# overview call can succeed. Requires docker, curl and GNU date.
+set -euo pipefail
+
+IMAGE="${1:-nl-rooster-backend:latest}"
+TEAM="${2:-boble}"
+RUNS="${3:-3}"
+PORT="${PORT:-18080}"
+
+now_ms() {
+  date +%s%3N
+}
+
+# Polls a URL until it answers with a 2xx status and prints the elapsed milliseconds since $2.
+wait_for() {
+  local url="$1" start="$2"
+  until curl -fsS -o /dev/null --max-time 60 "$url" 2> /dev/null; do
+    if (( $(now_ms) - start > 300000 )); then
+      echo "timeout"
+      return
+    fi
+    sleep 0.05
+  done
+  echo $(( $(now_ms) - start ))
+}
+
+run_once() {
+  local label="$1"
+  shift
+  local start cid health overview
+  start=$(now_ms)
+  cid=$(docker run -d --rm -p "${PORT}:8080" \
+    -e SPRING_PROFILES_ACTIVE=prod \
+    -e BLIZZARD_CLIENT_ID -e BLIZZARD_CLIENT_SECRET \
+    -e WARCRAFTLOGS_CLIENT_ID -e WARCRAFTLOGS_CLIENT_SECRET \
+    "$@" "$IMAGE")
+  health=$(wait_for "http://localhost:${PORT}/health" "$start")
+  overview=$(wait_for "http://localhost:${PORT}/api/characters/overview?team=${TEAM}" "$start")
+  docker stop "$cid" > /dev/null
+  printf '%-7s health=%8s ms   overview=%8s ms\n' "$label" "$health" "$overview"
+}
+
+for i in $(seq 1 "$RUNS"); do
+  echo "Run $i/$RUNS"
+  # Overriding JDK_JAVA_OPTIONS drops the SharedArchiveFile and AOT flags baked into the image.
+  run_once before -e JDK_JAVA_OPTIONS="-Dspring.aot.enabled=false"
+  run_once after
+done
@@ -0,0 +1,28 @@
+package com.nl.wowapi.boble.cache;
+
+/**
+ * Tells the other instances to drop a key (or, with a null key, everything) from their local cache.
+ *
+ * @param origin    id of the instance that sent the message; it ignores its own messages.
+ * @param cacheName the cache the key belongs to.
+ * @param key       the evicted key, or null when the whole cache was cleared.
+ */
+public record CacheInvalidationMessage(String origin, String cacheName, String key) {
+
+    private static final String SEPARATOR = "\n";
+
+    public String encode() {
+        return origin + SEPARATOR + cacheName + (key != null ? SEPARATOR + key : "");
+    }
+
+    /**
+     * @return the parsed message, or null if it is malformed.
+     */
+    public static CacheInvalidationMessage parse(String message) {
+        String[] parts = message.split(SEPARATOR, 3);
+        if (parts.length < 2) {
+            return null;
+        }
+        return new CacheInvalidationMessage(parts[0], parts[1], parts.length == 3 ? parts[2] : null);
+    }
+}
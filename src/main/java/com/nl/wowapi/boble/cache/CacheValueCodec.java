@@ -0,0 +1,87 @@
+package com.nl.wowapi.boble.cache;
+
+import com.nl.wowapi.boble.model.CharacterProfile;
+import com.nl.wowapi.boble.model.MythicProfile;
+import com.nl.wowapi.boble.model.RaidPerformance;
+import com.nl.wowapi.boble.model.Role;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Serializes cached values for the shared tier. Values are written as a one byte type tag followed by
+ * the fields of the projection, a few dozen bytes per character.
+ * <p>
+ * Type 1 was the deflated Blizzard JSON cached before the projections; it is no longer read, so such
+ * entries count as misses and get overwritten.
+ */
+public class CacheValueCodec {
+
+    private static final byte TYPE_CHARACTER_PROFILE = 2;
+    private static final byte TYPE_MYTHIC_PROFILE = 3;
+    private static final byte TYPE_RAID_PERFORMANCE = 4;
+
+    /**
+     * @return the encoded value, or null if the value can't be stored in the shared tier.
+     */
+    public byte[] encode(Object value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (value instanceof CharacterProfile profile) {
+                out.writeByte(TYPE_CHARACTER_PROFILE);
+                out.writeUTF(profile.name());
+                out.writeUTF(profile.className());
+                out.writeUTF(profile.realm());
+                out.writeInt(profile.equippedItemLevel());
+                out.writeUTF(profile.activeSpec());
+                out.writeUTF(profile.role().name());
+                out.writeLong(profile.lastLoginTimestamp());
+            } else if (value instanceof MythicProfile mythic) {
+                out.writeByte(TYPE_MYTHIC_PROFILE);
+                out.writeInt(mythic.rating());
+                out.writeInt(mythic.rgb());
+                out.writeFloat(mythic.alpha());
+            } else if (value instanceof RaidPerformance raid) {
+                out.writeByte(TYPE_RAID_PERFORMANCE);
+                out.writeDouble(raid.bestPerformanceAverage());
+            } else {
+                return null;
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the decoded value, or null if the bytes are not in a known format.
+     */
+    public Object decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+            return switch (bytes[0]) {
+                case TYPE_CHARACTER_PROFILE -> new CharacterProfile(
+                        in.readUTF(),
+                        in.readUTF().intern(),
+                        in.readUTF().intern(),
+                        in.readInt(),
+                        in.readUTF().intern(),
+                        Role.valueOf(in.readUTF()),
+                        in.readLong());
+                case TYPE_MYTHIC_PROFILE -> new MythicProfile(in.readInt(), in.readInt(), in.readFloat());
+                case TYPE_RAID_PERFORMANCE -> new RaidPerformance(in.readDouble());
+                default -> null;
+            };
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Corrupt cache value", e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.nl.wowapi.boble.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for a shared store, for local runs and tests. Several caches created against the
+ * same instance behave like separate application instances sharing one Redis.
+ */
+public class InMemorySharedCacheStore implements SharedCacheStore {
+
+    private record Entry(byte[] value, long expiresAtNanos) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public byte[] get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos() >= 0) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        entries.put(key, new Entry(value, System.nanoTime() + ttl.toNanos()));
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, byte[] value, Duration ttl) {
+        Entry created = new Entry(value, System.nanoTime() + ttl.toNanos());
+        Entry current = entries.compute(key, (k, existing) ->
+                existing == null || System.nanoTime() - existing.expiresAtNanos() >= 0 ? created : existing);
+        return current == created;
+    }
+
+    @Override
+    public void delete(String key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public boolean deleteIfEquals(String key, byte[] value) {
+        boolean[] deleted = new boolean[1];
+        entries.computeIfPresent(key, (k, existing) -> {
+            deleted[0] = Arrays.equals(existing.value(), value);
+            return deleted[0] ? null : existing;
+        });
+        return deleted[0];
+    }
+
+    @Override
+    public void deleteByPrefix(String prefix) {
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    @Override
+    public void publish(String message) {
+        for (Consumer<String> listener : listeners) {
+            listener.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        entries.clear();
+        listeners.clear();
+    }
+}
@@ -0,0 +1,116 @@
+package com.nl.wowapi.boble.cache;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * {@link SharedCacheStore} on any Redis protocol compatible server (Redis, Valkey, KeyDB, an embedded test server...).
+ */
+public class RedisSharedCacheStore implements SharedCacheStore {
+
+    // GET and DEL in one atomic step, so the value can't change in between.
+    private static final byte[] DELETE_IF_EQUALS_SCRIPT = bytes(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end");
+
+    private final RedisConnectionFactory connectionFactory;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String channel;
+
+    public RedisSharedCacheStore(RedisConnectionFactory connectionFactory, String channel) {
+        this.connectionFactory = connectionFactory;
+        this.channel = channel;
+        this.listenerContainer = new RedisMessageListenerContainer();
+        this.listenerContainer.setConnectionFactory(connectionFactory);
+        this.listenerContainer.afterPropertiesSet();
+        this.listenerContainer.start();
+    }
+
+    @Override
+    public byte[] get(String key) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            return connection.stringCommands().get(bytes(key));
+        }
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.stringCommands().set(bytes(key), value, Expiration.from(ttl), RedisStringCommands.SetOption.upsert());
+        }
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, byte[] value, Duration ttl) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            // SET NX PX
+            Boolean stored = connection.stringCommands().set(bytes(key), value, Expiration.from(ttl),
+                    RedisStringCommands.SetOption.ifAbsent());
+            return Boolean.TRUE.equals(stored);
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.keyCommands().del(bytes(key));
+        }
+    }
+
+    @Override
+    public boolean deleteIfEquals(String key, byte[] value) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Long deleted = connection.scriptingCommands().eval(DELETE_IF_EQUALS_SCRIPT, ReturnType.INTEGER, 1,
+                    bytes(key), value);
+            return deleted != null && deleted > 0;
+        }
+    }
+
+    @Override
+    public void deleteByPrefix(String prefix) {
+        ScanOptions options = ScanOptions.scanOptions().match(prefix + "*").count(500).build();
+        try (RedisConnection connection = connectionFactory.getConnection();
+             Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+            while (cursor.hasNext()) {
+                connection.keyCommands().del(cursor.next());
+            }
+        }
+    }
+
+    @Override
+    public void publish(String message) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.publish(bytes(channel), bytes(message));
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(channel));
+    }
+
+    @Override
+    public void close() {
+        try {
+            listenerContainer.destroy();
+        } catch (Exception e) {
+            System.err.println("Failed to stop Redis listener container: " + e.getMessage());
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
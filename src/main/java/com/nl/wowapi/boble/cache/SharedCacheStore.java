@@ -0,0 +1,47 @@
+package com.nl.wowapi.boble.cache;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * The shared (second level) cache tier used by all instances, plus the channel used to tell the other
+ * instances to drop entries from their local caches.
+ */
+public interface SharedCacheStore extends AutoCloseable {
+
+    /**
+     * @return the stored bytes, or null if the key is absent or expired.
+     */
+    byte[] get(String key);
+
+    void put(String key, byte[] value, Duration ttl);
+
+    /**
+     * Stores the value only if the key doesn't exist yet; used as a lock that expires on its own.
+     *
+     * @return true if the value was stored.
+     */
+    boolean putIfAbsent(String key, byte[] value, Duration ttl);
+
+    void delete(String key);
+
+    /**
+     * Deletes the key only if it still holds the given value, so a lock that expired and was taken by someone
+     * else is not released by its former holder.
+     *
+     * @return true if the key was deleted.
+     */
+    boolean deleteIfEquals(String key, byte[] value);
+
+    void deleteByPrefix(String prefix);
+
+    /**
+     * Sends a message to every subscriber, including the ones of this instance.
+     */
+    void publish(String message);
+
+    void subscribe(Consumer<String> listener);
+
+    @Override
+    void close();
+}
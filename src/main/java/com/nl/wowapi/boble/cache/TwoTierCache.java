@@ -0,0 +1,225 @@
+package com.nl.wowapi.boble.cache;
+
+import com.nl.wowapi.boble.util.Deadline;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.function.BiFunction;
+
+/**
+ * A local Caffeine cache (L1) in front of a {@link SharedCacheStore} (L2) shared by all instances.
+ * <p>
+ * Lookups go to L1, then L2, and only call upstream when both miss. Writes and evictions go to both tiers
+ * and are broadcast so the other instances drop their L1 copy and pick up the new value from L2.
+ * If the shared store is unavailable the cache keeps working on L1 alone.
+ * <p>
+ * Loads through {@link #get(Object, Callable)} (i.e. {@code @Cacheable(sync = true)}) are coordinated across
+ * instances: the one that wins a short lived load lock in the shared tier calls upstream, the others wait for
+ * its value to show up there. So N instances missing the same key at once make one upstream call, not N.
+ */
+public class TwoTierCache implements Cache {
+
+    private static final String LOCK_SUFFIX = ":loading";
+    private static final long LOCK_POLL_MILLIS = 50;
+
+    private final CaffeineCache local;
+    private final SharedCacheStore shared;
+    private final CacheValueCodec codec;
+    // Lifetime of an entry in the shared tier, from its key and value.
+    private final BiFunction<Object, Object, Duration> ttl;
+    private final String instanceId;
+    private final String keyPrefix;
+    // How long other instances wait for a value being loaded elsewhere before loading it themselves. Longer
+    // than an upstream call may take, or a slow load would lose its lock and a second instance load again.
+    private final Duration loadLockTtl;
+
+    public TwoTierCache(CaffeineCache local, SharedCacheStore shared, CacheValueCodec codec,
+                        BiFunction<Object, Object, Duration> ttl, String instanceId, String keyPrefix,
+                        Duration loadLockTtl) {
+        this.local = local;
+        this.shared = shared;
+        this.codec = codec;
+        this.ttl = ttl;
+        this.instanceId = instanceId;
+        this.keyPrefix = keyPrefix + ":" + local.getName() + ":";
+        this.loadLockTtl = loadLockTtl;
+    }
+
+    @Override
+    public String getName() {
+        return local.getName();
+    }
+
+    // The Caffeine cache, so stats and policy inspection keep working on the local tier.
+    @Override
+    public Object getNativeCache() {
+        return local.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = local.get(key);
+        if (value != null) {
+            return value;
+        }
+        Object remote = readShared(key);
+        if (remote == null) {
+            return null;
+        }
+        local.put(key, remote);
+        return new SimpleValueWrapper(remote);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+
+        String lockKey = keyPrefix + key + LOCK_SUFFIX;
+        // Unique per load, so only this load can release its lock; not even a later load on this instance can.
+        byte[] lockToken = (instanceId + ":" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        long waitUntil = System.nanoTime() + loadLockTtl.toNanos();
+        boolean locked;
+        // If the lock holder fails, its lock goes away and the next waiter takes over the load.
+        while (!(locked = tryLock(lockKey, lockToken))) {
+            if (System.nanoTime() - waitUntil >= 0 || Deadline.expired() || !pause()) {
+                break;
+            }
+            Object remote = readShared(key);
+            if (remote != null) {
+                local.put(key, remote);
+                return (T) remote;
+            }
+        }
+
+        try {
+            // Another instance may have stored the value between our miss and taking the lock.
+            Object remote = locked ? readShared(key) : null;
+            if (remote != null) {
+                local.put(key, remote);
+                return (T) remote;
+            }
+            T value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            put(key, value);
+            return value;
+        } finally {
+            if (locked) {
+                unlock(lockKey, lockToken);
+            }
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        local.put(key, value);
+        byte[] bytes = value != null ? codec.encode(value) : null;
+        if (bytes == null) {
+            return;
+        }
+        try {
+            shared.put(keyPrefix + key, bytes, ttl.apply(key, value));
+            shared.publish(new CacheInvalidationMessage(instanceId, getName(), key.toString()).encode());
+        } catch (RuntimeException e) {
+            System.err.println("Shared cache write failed for " + keyPrefix + key + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.evict(key);
+        try {
+            shared.delete(keyPrefix + key);
+            shared.publish(new CacheInvalidationMessage(instanceId, getName(), key.toString()).encode());
+        } catch (RuntimeException e) {
+            System.err.println("Shared cache evict failed for " + keyPrefix + key + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void clear() {
+        local.clear();
+        try {
+            shared.deleteByPrefix(keyPrefix);
+            shared.publish(new CacheInvalidationMessage(instanceId, getName(), null).encode());
+        } catch (RuntimeException e) {
+            System.err.println("Shared cache clear failed for " + keyPrefix + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies an invalidation sent by another instance to the local tier only.
+     */
+    public void onInvalidation(CacheInvalidationMessage message) {
+        if (instanceId.equals(message.origin())) {
+            return;
+        }
+        if (message.key() == null) {
+            local.clear();
+        } else {
+            local.evict(message.key());
+        }
+    }
+
+    // True if this instance may load the value: it holds the lock, or the shared store is unavailable.
+    private boolean tryLock(String lockKey, byte[] lockToken) {
+        try {
+            return shared.putIfAbsent(lockKey, lockToken, loadLockTtl);
+        } catch (RuntimeException e) {
+            System.err.println("Shared cache lock failed for " + lockKey + ": " + e.getMessage());
+            return true;
+        }
+    }
+
+    // If the lock expired during the load, another instance may hold it by now; that lock is left alone.
+    private void unlock(String lockKey, byte[] lockToken) {
+        try {
+            shared.deleteIfEquals(lockKey, lockToken);
+        } catch (RuntimeException e) {
+            // The lock expires on its own.
+            System.err.println("Shared cache unlock failed for " + lockKey + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean pause() {
+        try {
+            Thread.sleep(LOCK_POLL_MILLIS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Object readShared(Object key) {
+        try {
+            return codec.decode(shared.get(keyPrefix + key));
+        } catch (RuntimeException e) {
+            System.err.println("Shared cache read failed for " + keyPrefix + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
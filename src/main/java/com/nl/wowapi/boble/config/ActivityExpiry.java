@@ -0,0 +1,76 @@
+package com.nl.wowapi.boble.config;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nl.wowapi.boble.model.CharacterProfile;
+import com.nl.wowapi.boble.service.CharacterActivityTracker;
+
+import java.time.Duration;
+
+/**
+ * Per-character cache lifetime: the base TTL for characters that logged in within the last day, growing
+ * to 6x, 36x and 144x for characters idle for a day, a week and a month. The result is then divided by how
+ * often the character is requested compared to the expected rate (between 0.5x and 2x) and clamped to
+ * [minTtl, maxTtl].
+ */
+public class ActivityExpiry implements Expiry<Object, Object> {
+
+    private static final long DAY_MILLIS = Duration.ofDays(1).toMillis();
+
+    private final CharacterActivityTracker activityTracker;
+    private final Duration baseTtl;
+    private final Duration minTtl;
+    private final Duration maxTtl;
+    private final double expectedRequestsPerHour;
+
+    public ActivityExpiry(CharacterActivityTracker activityTracker, Duration baseTtl, Duration minTtl, Duration maxTtl,
+                          double expectedRequestsPerHour) {
+        this.activityTracker = activityTracker;
+        this.baseTtl = baseTtl;
+        this.minTtl = minTtl;
+        this.maxTtl = maxTtl;
+        this.expectedRequestsPerHour = expectedRequestsPerHour;
+    }
+
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+        return ttl(key, value).toNanos();
+    }
+
+    @Override
+    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+        return ttl(key, value).toNanos();
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+
+    /**
+     * Computes the lifetime of a freshly written entry. Character profiles also update the tracked last login,
+     * which the other caches of the same character then reuse.
+     */
+    public Duration ttl(Object key, Object value) {
+        String characterKey = key.toString();
+        if (value instanceof CharacterProfile profile && profile.lastLoginTimestamp() > 0) {
+            activityTracker.recordLastLogin(characterKey, profile.lastLoginTimestamp());
+        }
+
+        double multiplier = 1;
+        Long lastLogin = activityTracker.getLastLogin(characterKey);
+        if (lastLogin != null) {
+            long idleMillis = System.currentTimeMillis() - lastLogin;
+            if (idleMillis > 30 * DAY_MILLIS) {
+                multiplier = 144;
+            } else if (idleMillis > 7 * DAY_MILLIS) {
+                multiplier = 36;
+            } else if (idleMillis > DAY_MILLIS) {
+                multiplier = 6;
+            }
+        }
+        double demand = Math.max(0.5, Math.min(2.0, activityTracker.getRequestsPerHour(characterKey) / expectedRequestsPerHour));
+
+        long nanos = (long) (baseTtl.toNanos() * multiplier / demand);
+        return Duration.ofNanos(Math.max(minTtl.toNanos(), Math.min(maxTtl.toNanos(), nanos)));
+    }
+}
@@ -0,0 +1,44 @@
+package com.nl.wowapi.boble.config;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.nl.wowapi.boble.model.CharacterOverviewDto;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Smile and CBOR converters, picked by the Accept header ({@code application/x-jackson-smile},
+ * {@code application/cbor}). They replace the default converters for these types and write a compact
+ * overview row: the Blizzard, Raider.IO and Warcraft Logs links are left out, since clients can
+ * build them from name and realm. Smile also back-references repeated short strings such as class,
+ * spec, role and realm names.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+        SmileFactory factory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return new MappingJackson2SmileHttpMessageConverter(Jackson2ObjectMapperBuilder.smile()
+                .factory(factory)
+                .mixIn(CharacterOverviewDto.class, CompactOverviewRow.class)
+                .build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        return new MappingJackson2CborHttpMessageConverter(Jackson2ObjectMapperBuilder.cbor()
+                .mixIn(CharacterOverviewDto.class, CompactOverviewRow.class)
+                .build());
+    }
+
+    @JsonIgnoreProperties({"blizzardUrl", "raiderIoUrl", "warcraftLogsUrl"})
+    private abstract static class CompactOverviewRow {
+    }
+}
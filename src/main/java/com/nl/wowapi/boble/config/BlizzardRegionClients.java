@@ -0,0 +1,58 @@
+package com.nl.wowapi.boble.config;
+
+import com.nl.wowapi.boble.model.Region;
+import com.nl.wowapi.boble.util.Deadline;
+import com.nl.wowapi.boble.util.RateLimiter;
+import com.nl.wowapi.boble.util.RequestTrace;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A connection pool and a request budget per Blizzard region, so a burst of lookups in one region
+ * waits on its own pool and budget instead of starving the others. Both are created on a region's first
+ * request, so regions nobody looks up cost nothing.
+ */
+public class BlizzardRegionClients {
+
+    private final Function<Region, RestTemplate> restTemplateFactory;
+    private final Supplier<RateLimiter> rateLimiterFactory;
+    private final Map<Region, RestTemplate> restTemplates = new ConcurrentHashMap<>();
+    private final Map<Region, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+    private final Duration maxWait;
+
+    public BlizzardRegionClients(Function<Region, RestTemplate> restTemplateFactory,
+                                 Supplier<RateLimiter> rateLimiterFactory, Duration maxWait) {
+        this.restTemplateFactory = restTemplateFactory;
+        this.rateLimiterFactory = rateLimiterFactory;
+        this.maxWait = maxWait;
+    }
+
+    public RestTemplate restTemplate(Region region) {
+        return restTemplates.computeIfAbsent(region, restTemplateFactory);
+    }
+
+    /**
+     * Takes one request from the region's budget, waiting at most until the current {@link Deadline}.
+     *
+     * @throws ResourceAccessException if the budget has no room in time.
+     */
+    public void acquire(Region region) {
+        Duration remaining = Deadline.remaining();
+        Duration wait = remaining != null && remaining.compareTo(maxWait) < 0 ? remaining : maxWait;
+        // A span of its own, so waiting for the budget isn't counted as time spent on Blizzard.
+        try (RequestTrace.Span span = RequestTrace.start("rate-limit")) {
+            if (!rateLimiters.computeIfAbsent(region, key -> rateLimiterFactory.get()).tryAcquire(wait.isNegative() ? Duration.ZERO : wait)) {
+                throw new ResourceAccessException("Request budget for region " + region.slug() + " exhausted");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted waiting for the " + region.slug() + " request budget");
+        }
+    }
+}
@@ -1,23 +1,151 @@
 package com.nl.wowapi.boble.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
+import com.nl.wowapi.boble.cache.CacheInvalidationMessage;
+import com.nl.wowapi.boble.cache.CacheValueCodec;
+import com.nl.wowapi.boble.cache.InMemorySharedCacheStore;
+import com.nl.wowapi.boble.cache.RedisSharedCacheStore;
+import com.nl.wowapi.boble.cache.SharedCacheStore;
+import com.nl.wowapi.boble.cache.TwoTierCache;
+import com.nl.wowapi.boble.service.CharacterActivityTracker;
+import com.nl.wowapi.boble.service.RosterService;
+import com.nl.wowapi.boble.util.CacheEntryWeigher;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Configuration
 public class CacheConfig {
 
+    public static final String CHARACTER_PROFILES = "characterProfiles";
+    public static final String MYTHIC_PROFILES = "mythicProfiles";
+    public static final String ZONE_RANKINGS = "zoneRankings";
+
+    // Identifies this instance in invalidation messages, so it can skip its own.
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // Null when running with the local tier only.
+    private SharedCacheStore sharedCacheStore;
+
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("characterProfiles", "mythicProfiles");
-        cacheManager.setCaffeine(
-                Caffeine.newBuilder()
-                        .expireAfterWrite(10, TimeUnit.MINUTES)
-        );
+    public RegionPartitionedCacheManager cacheManager(
+            @Value("${cache.character-profiles.ttl-minutes:10}") long profileTtlMinutes,
+            @Value("${cache.character-profiles.max-weight-bytes:16777216}") long profileMaxWeightBytes,
+            @Value("${cache.character-profiles.record-stats:true}") boolean profileRecordStats,
+            @Value("${cache.mythic-profiles.ttl-minutes:10}") long mythicTtlMinutes,
+            @Value("${cache.mythic-profiles.max-weight-bytes:16777216}") long mythicMaxWeightBytes,
+            @Value("${cache.mythic-profiles.record-stats:true}") boolean mythicRecordStats,
+            @Value("${cache.zone-rankings.ttl-minutes:30}") long rankingsTtlMinutes,
+            @Value("${cache.zone-rankings.max-weight-bytes:4194304}") long rankingsMaxWeightBytes,
+            @Value("${cache.zone-rankings.record-stats:true}") boolean rankingsRecordStats,
+            @Value("${cache.overflow.max-weight-bytes:1048576}") long overflowMaxWeightBytes,
+            @Value("${cache.adaptive.enabled:true}") boolean adaptiveTtl,
+            @Value("${cache.adaptive.min-ttl-minutes:5}") long adaptiveMinTtlMinutes,
+            @Value("${cache.adaptive.max-ttl-minutes:1440}") long adaptiveMaxTtlMinutes,
+            @Value("${cache.adaptive.expected-requests-per-hour:6}") double expectedRequestsPerHour,
+            CharacterActivityTracker activityTracker,
+            RosterService rosterService,
+            @Value("${cache.l2.backend:none}") String l2Backend,
+            @Value("${cache.l2.key-prefix:nl-rooster}") String l2KeyPrefix,
+            @Value("${cache.l2.load-lock-ms:15000}") long l2LoadLockMs,
+            @Value("${upstream.connect-timeout-ms:2000}") long upstreamConnectTimeoutMs,
+            @Value("${upstream.read-timeout-ms:10000}") long upstreamReadTimeoutMs,
+            ObjectProvider<RedisConnectionFactory> redisConnectionFactory) {
+        Map<String, CachePolicy> policies = new LinkedHashMap<>();
+        policies.put(CHARACTER_PROFILES,
+                new CachePolicy(Duration.ofMinutes(profileTtlMinutes), profileMaxWeightBytes, profileRecordStats));
+        policies.put(MYTHIC_PROFILES,
+                new CachePolicy(Duration.ofMinutes(mythicTtlMinutes), mythicMaxWeightBytes, mythicRecordStats));
+        policies.put(ZONE_RANKINGS,
+                new CachePolicy(Duration.ofMinutes(rankingsTtlMinutes), rankingsMaxWeightBytes, rankingsRecordStats));
+
+        if (l2LoadLockMs <= upstreamConnectTimeoutMs + upstreamReadTimeoutMs) {
+            throw new IllegalArgumentException("cache.l2.load-lock-ms (" + l2LoadLockMs
+                    + ") must be longer than upstream.connect-timeout-ms + upstream.read-timeout-ms ("
+                    + (upstreamConnectTimeoutMs + upstreamReadTimeoutMs) + ")");
+        }
+
+        // Chosen at runtime rather than with @ConditionalOnProperty, which AOT would freeze at build time.
+        sharedCacheStore = switch (l2Backend) {
+            case "redis" -> new RedisSharedCacheStore(redisConnectionFactory.getObject(), l2KeyPrefix + ":invalidation");
+            case "memory" -> new InMemorySharedCacheStore();
+            case "none" -> null;
+            default -> throw new IllegalArgumentException("Unknown cache.l2.backend: " + l2Backend);
+        };
+
+        Map<String, ActivityExpiry> expiries = new LinkedHashMap<>();
+        Map<String, Long> maxWeightBytes = new LinkedHashMap<>();
+        policies.forEach((cacheName, policy) -> {
+            if (adaptiveTtl) {
+                expiries.put(cacheName, new ActivityExpiry(activityTracker, policy.ttl(),
+                        Duration.ofMinutes(adaptiveMinTtlMinutes), Duration.ofMinutes(adaptiveMaxTtlMinutes),
+                        expectedRequestsPerHour));
+            }
+            maxWeightBytes.put(cacheName, policy.maxWeightBytes());
+        });
+
+        // One partition per cache and roster region (e.g. "characterProfiles-eu") plus an overflow partition for
+        // the other regions, so a burst in one region can't evict the others' entries; see RegionCacheResolver.
+        Map<String, TwoTierCache> twoTierCaches = new ConcurrentHashMap<>();
+        RegionPartitionedCacheManager cacheManager = new RegionPartitionedCacheManager(maxWeightBytes,
+                rosterService.regions(), overflowMaxWeightBytes, (name, cacheName, partitionMaxWeightBytes) -> {
+                    CachePolicy policy = policies.get(cacheName);
+                    ActivityExpiry expiry = expiries.get(cacheName);
+                    CaffeineCache local = new CaffeineCache(name, buildCache(policy, partitionMaxWeightBytes, expiry));
+                    if (sharedCacheStore == null) {
+                        return local;
+                    }
+                    TwoTierCache cache = new TwoTierCache(local, sharedCacheStore, new CacheValueCodec(),
+                            expiry != null ? expiry::ttl : (key, value) -> policy.ttl(), instanceId, l2KeyPrefix,
+                            Duration.ofMillis(l2LoadLockMs));
+                    twoTierCaches.put(name, cache);
+                    return cache;
+                });
+
+        if (sharedCacheStore != null) {
+            sharedCacheStore.subscribe(raw -> {
+                CacheInvalidationMessage message = CacheInvalidationMessage.parse(raw);
+                TwoTierCache cache = message != null ? twoTierCaches.get(message.cacheName()) : null;
+                if (cache != null) {
+                    cache.onInvalidation(message);
+                }
+            });
+        }
+
         return cacheManager;
     }
+
+    @PreDestroy
+    public void closeSharedCacheStore() {
+        if (sharedCacheStore != null) {
+            sharedCacheStore.close();
+        }
+    }
+
+    // With an expiry, the policy TTL is only the base from which each entry's lifetime is derived.
+    private Cache<Object, Object> buildCache(CachePolicy policy, long maxWeightBytes, ActivityExpiry expiry) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher(new CacheEntryWeigher());
+        if (expiry != null) {
+            builder.expireAfter(expiry);
+        } else {
+            builder.expireAfterWrite(policy.ttl());
+        }
+        if (policy.recordStats()) {
+            builder.recordStats();
+        }
+        return builder.build();
+    }
 }
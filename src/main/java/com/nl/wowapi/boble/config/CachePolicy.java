@@ -0,0 +1,13 @@
+package com.nl.wowapi.boble.config;
+
+import java.time.Duration;
+
+/**
+ * Size and expiry settings for one cache.
+ *
+ * @param ttl            how long an entry is kept after it was written.
+ * @param maxWeightBytes upper bound for the estimated heap use of all entries.
+ * @param recordStats    whether hit/miss/eviction statistics are collected.
+ */
+public record CachePolicy(Duration ttl, long maxWeightBytes, boolean recordStats) {
+}
@@ -0,0 +1,26 @@
+package com.nl.wowapi.boble.config;
+
+import com.nl.wowapi.boble.model.Region;
+import com.nl.wowapi.boble.util.CharacterNames;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+
+/**
+ * Builds the cache key for per-character lookups taking (region, realm, characterName) as their first arguments.
+ * Keys are normalized so "Tarren Mill"/"Moph" and "tarren-mill"/"moph" share one entry and can be evicted by either,
+ * and include the region since realm names are only unique within one.
+ */
+@Component("characterKeyGenerator")
+public class CharacterKeyGenerator implements KeyGenerator {
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        return key((Region) params[0], (String) params[1], (String) params[2]);
+    }
+
+    public static String key(Region region, String realm, String characterName) {
+        return region.slug() + "_" + CharacterNames.realmSlug(realm) + "_" + CharacterNames.nameSlug(characterName);
+    }
+}
@@ -0,0 +1,14 @@
+package com.nl.wowapi.boble.config;
+
+/**
+ * The frontend origins allowed to call the API, as a placeholder for {@code @CrossOrigin} and {@code @Value}.
+ * Overridable with the comma-separated {@code cors.allowed-origins} property.
+ */
+public final class CorsOrigins {
+
+    public static final String ALLOWED = "${cors.allowed-origins:http://localhost:3000,http://localhost:5173,"
+            + "http://nl-rooster-alb-615277410.eu-west-1.elb.amazonaws.com}";
+
+    private CorsOrigins() {
+    }
+}
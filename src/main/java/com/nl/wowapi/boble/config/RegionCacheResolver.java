@@ -0,0 +1,49 @@
+package com.nl.wowapi.boble.config;
+
+import com.nl.wowapi.boble.model.Region;
+import org.springframework.cache.Cache;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Resolves {@code @Cacheable(value = "characterProfiles")} on a method whose first argument is a {@link Region}
+ * to that region's partition, e.g. "characterProfiles-eu", so a burst of lookups in one region can't evict
+ * the other regions' entries. Regions without a roster share the cache's overflow partition
+ * ("characterProfiles-other"); see {@link RegionPartitionedCacheManager}.
+ */
+@Component("regionCacheResolver")
+public class RegionCacheResolver implements CacheResolver {
+
+    private final RegionPartitionedCacheManager cacheManager;
+
+    public RegionCacheResolver(RegionPartitionedCacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public static String partitionName(String cacheName, Region region) {
+        return cacheName + "-" + region.slug();
+    }
+
+    public static String overflowPartitionName(String cacheName) {
+        return cacheName + "-other";
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        Region region = (Region) context.getArgs()[0];
+        List<Cache> caches = new ArrayList<>();
+        for (String cacheName : context.getOperation().getCacheNames()) {
+            Cache cache = cacheManager.partition(cacheName, region);
+            if (cache == null) {
+                throw new IllegalArgumentException("No cache partition of " + cacheName + " for " + region.slug());
+            }
+            caches.add(cache);
+        }
+        return caches;
+    }
+}
@@ -0,0 +1,17 @@
+package com.nl.wowapi.boble.config;
+
+import com.nl.wowapi.boble.model.Region;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Binds request parameters like {@code ?region=us} to a {@link Region}; unknown regions are a 400.
+ */
+@Component
+public class RegionConverter implements Converter<String, Region> {
+
+    @Override
+    public Region convert(String source) {
+        return Region.fromSlug(source);
+    }
+}
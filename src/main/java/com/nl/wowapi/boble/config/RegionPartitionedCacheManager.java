@@ -0,0 +1,65 @@
+package com.nl.wowapi.boble.config;
+
+import com.nl.wowapi.boble.model.Region;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractCacheManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds the region partitions of each cache ("characterProfiles-eu", see {@link RegionCacheResolver}): one per
+ * region on the rosters, splitting the cache's weight budget evenly, plus one small overflow partition
+ * ("characterProfiles-other") shared by lookups in every other region. All partitions are created up front with
+ * fixed budgets, so lookups in regions nobody has a roster for can never shrink or evict the roster regions.
+ */
+public class RegionPartitionedCacheManager extends AbstractCacheManager {
+
+    @FunctionalInterface
+    public interface PartitionFactory {
+        Cache create(String partitionName, String cacheName, long maxWeightBytes);
+    }
+
+    private final Map<String, Long> maxWeightBytes;
+    private final Set<Region> rosterRegions;
+    private final long overflowWeightBytes;
+    private final PartitionFactory partitionFactory;
+
+    /**
+     * @param maxWeightBytes      the weight budget of each cache over its roster regions, by cache name.
+     * @param overflowWeightBytes the budget of each cache's overflow partition, on top of that.
+     */
+    public RegionPartitionedCacheManager(Map<String, Long> maxWeightBytes, Set<Region> rosterRegions,
+                                         long overflowWeightBytes, PartitionFactory partitionFactory) {
+        this.maxWeightBytes = maxWeightBytes;
+        this.rosterRegions = rosterRegions;
+        this.overflowWeightBytes = overflowWeightBytes;
+        this.partitionFactory = partitionFactory;
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        List<Cache> caches = new ArrayList<>();
+        maxWeightBytes.forEach((cacheName, budget) -> {
+            long share = Math.max(1, budget / Math.max(1, rosterRegions.size()));
+            for (Region region : rosterRegions) {
+                caches.add(partitionFactory.create(RegionCacheResolver.partitionName(cacheName, region), cacheName, share));
+            }
+            caches.add(partitionFactory.create(RegionCacheResolver.overflowPartitionName(cacheName), cacheName,
+                    overflowWeightBytes));
+        });
+        return caches;
+    }
+
+    /**
+     * @return the partition of a cache holding the region's entries, or null for an unknown cache.
+     */
+    public Cache partition(String cacheName, Region region) {
+        return getCache(rosterRegions.contains(region)
+                ? RegionCacheResolver.partitionName(cacheName, region)
+                : RegionCacheResolver.overflowPartitionName(cacheName));
+    }
+}
@@ -0,0 +1,57 @@
+package com.nl.wowapi.boble.config;
+
+import com.nl.wowapi.boble.util.RequestTrace;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Traces every /api request (see {@link RequestTrace}) and logs the spans of the slow ones.
+ * The trace id is taken from an incoming W3C {@code traceparent} header when there is one.
+ * The Server-Timing header itself is added by {@link ServerTimingAdvice}, before the body is written.
+ */
+@Component
+public class RequestTracingFilter extends OncePerRequestFilter {
+
+    @Value("${tracing.log-slower-than-ms:2000}")
+    private long logSlowerThanMs;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTrace trace = new RequestTrace(traceId(request.getHeader("traceparent")));
+        RequestTrace.begin(trace);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestTrace.end();
+            long elapsedMs = trace.elapsedNanos() / 1_000_000;
+            if (elapsedMs >= logSlowerThanMs) {
+                System.out.println("Slow request " + request.getMethod() + " " + request.getRequestURI()
+                        + " took " + elapsedMs + " ms, trace " + trace.getTraceId());
+                trace.getLogNotes().forEach(note -> System.out.println("  " + note));
+                trace.describeSpans().forEach(System.out::println);
+            }
+        }
+    }
+
+    // "00-<trace id>-<parent id>-<flags>"
+    private static String traceId(String traceparent) {
+        if (traceparent == null) {
+            return null;
+        }
+        String[] parts = traceparent.split("-");
+        return parts.length == 4 && parts[1].length() == 32 ? parts[1] : null;
+    }
+}
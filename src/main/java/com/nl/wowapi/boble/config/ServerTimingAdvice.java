@@ -0,0 +1,40 @@
+package com.nl.wowapi.boble.config;
+
+import com.nl.wowapi.boble.util.RequestTrace;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the Server-Timing header of the current {@link RequestTrace}, so a slow request can be broken down
+ * per upstream in the browser devtools. Timing-Allow-Origin lets the cross-origin frontend read it; it defaults
+ * to the CORS origins, so other sites can't read the timings of their visitors' requests.
+ */
+@ControllerAdvice
+public class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+
+    @Value("${tracing.timing-allow-origin:" + CorsOrigins.ALLOWED + "}")
+    private String timingAllowOrigin;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestTrace trace = RequestTrace.current();
+        if (trace != null) {
+            response.getHeaders().add("Server-Timing", trace.serverTiming());
+            response.getHeaders().add("Timing-Allow-Origin", timingAllowOrigin);
+        }
+        return body;
+    }
+}
@@ -0,0 +1,97 @@
+package com.nl.wowapi.boble.config;
+
+import com.nl.wowapi.boble.util.Deadline;
+import com.nl.wowapi.boble.util.DeadlineTimeoutException;
+import com.nl.wowapi.boble.util.RateLimiter;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+
+/**
+ * The RestTemplates used for upstream calls: one pooled client for Warcraft Logs and the OAuth token endpoints,
+ * and one per Blizzard region (see {@link BlizzardRegionClients}), each with the response timeout cut down to
+ * whatever is left of the caller's {@link Deadline}.
+ */
+@Configuration
+public class UpstreamHttpConfig {
+
+    // Set on the context of requests whose timeouts were shortened to the deadline.
+    private static final String DEADLINE_CLIPPED = "boble.deadline-clipped";
+
+    @Value("${upstream.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${upstream.read-timeout-ms:10000}")
+    private long readTimeoutMs;
+
+    @Bean
+    public RestTemplate upstreamRestTemplate(@Value("${upstream.max-connections:50}") int maxConnections) {
+        return createRestTemplate(maxConnections);
+    }
+
+    @Bean
+    public BlizzardRegionClients blizzardRegionClients(
+            @Value("${blizzard.max-connections-per-region:50}") int maxConnections,
+            @Value("${blizzard.rate-limit.requests-per-second:50}") double requestsPerSecond,
+            @Value("${blizzard.rate-limit.max-wait-ms:5000}") long maxWaitMs) {
+        return new BlizzardRegionClients(region -> createRestTemplate(maxConnections),
+                () -> new RateLimiter(requestsPerSecond), Duration.ofMillis(maxWaitMs));
+    }
+
+    private RestTemplate createRestTemplate(int maxConnections) {
+        HttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnections)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                // Wraps the whole chain, retries included, so the timeout that ends the call is the one reported.
+                .addExecInterceptorFirst("deadline-timeout", (request, scope, chain) -> {
+                    try {
+                        return chain.proceed(request, scope);
+                    } catch (InterruptedIOException e) {
+                        if (scope.clientContext.getAttribute(DEADLINE_CLIPPED) != null) {
+                            throw new DeadlineTimeoutException(e);
+                        }
+                        throw e;
+                    }
+                })
+                .build();
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setHttpContextFactory((method, uri) -> {
+            Duration remaining = Deadline.remaining();
+            if (remaining == null) {
+                return null;
+            }
+            // At least 1 ms: a zero timeout would mean no timeout at all.
+            long timeoutMs = Math.max(1, Math.min(readTimeoutMs, remaining.toMillis()));
+            HttpClientContext context = HttpClientContext.create();
+            if (timeoutMs < readTimeoutMs) {
+                context.setAttribute(DEADLINE_CLIPPED, Boolean.TRUE);
+            }
+            context.setRequestConfig(RequestConfig.custom()
+                    .setConnectionRequestTimeout(Timeout.ofMilliseconds(timeoutMs))
+                    .setResponseTimeout(Timeout.ofMilliseconds(timeoutMs))
+                    .build());
+            return context;
+        });
+        return new RestTemplate(requestFactory);
+    }
+}
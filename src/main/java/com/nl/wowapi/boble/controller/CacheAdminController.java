@@ -0,0 +1,69 @@
+package com.nl.wowapi.boble.controller;
+
+import com.nl.wowapi.boble.model.CacheStatsDto;
+import com.nl.wowapi.boble.model.Region;
+import com.nl.wowapi.boble.service.CacheAdminService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+// Admin endpoints are only enabled when admin.token is set, and require it in the X-Admin-Token header.
+@RestController
+@RequestMapping("/api/admin/cache")
+public class CacheAdminController {
+
+    private final CacheAdminService cacheAdminService;
+
+    @Value("${admin.token:}")
+    private String adminToken;
+
+    public CacheAdminController(CacheAdminService cacheAdminService) {
+        this.cacheAdminService = cacheAdminService;
+    }
+
+    @GetMapping
+    public List<CacheStatsDto> getStats(@RequestHeader(value = "X-Admin-Token", required = false) String token) {
+        checkToken(token);
+        return cacheAdminService.getStats();
+    }
+
+    @DeleteMapping("/character/{realm}/{name}")
+    public ResponseEntity<Void> evictCharacter(@RequestHeader(value = "X-Admin-Token", required = false) String token,
+                                               @PathVariable String realm, @PathVariable String name,
+                                               @RequestParam(defaultValue = "eu") Region region) {
+        checkToken(token);
+        cacheAdminService.evictCharacter(region, realm, name);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/team/{team}")
+    public ResponseEntity<Void> evictTeam(@RequestHeader(value = "X-Admin-Token", required = false) String token,
+                                          @PathVariable String team) {
+        checkToken(token);
+        cacheAdminService.evictTeam(team);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{cacheName}")
+    public ResponseEntity<Void> clear(@RequestHeader(value = "X-Admin-Token", required = false) String token,
+                                      @PathVariable String cacheName) {
+        checkToken(token);
+        if (!cacheAdminService.clear(cacheName)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private void checkToken(String token) {
+        if (adminToken == null || adminToken.isBlank() || token == null
+                || !MessageDigest.isEqual(adminToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+    }
+}
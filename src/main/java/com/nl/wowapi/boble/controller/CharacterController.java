@@ -1,6 +1,9 @@
 package com.nl.wowapi.boble.controller;
 
+import com.nl.wowapi.boble.model.CharacterProfile;
+import com.nl.wowapi.boble.model.Region;
 import com.nl.wowapi.boble.service.BlizzardApiService;
+import com.nl.wowapi.boble.service.CharacterActivityTracker;
 import org.springframework.web.bind.annotation.*;
 
 // Not really used anymore, but will keep it if we need to do individual lookups later
@@ -9,13 +12,17 @@ import org.springframework.web.bind.annotation.*;
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
 public class CharacterController {
     private final BlizzardApiService blizzardApiService;
+    private final CharacterActivityTracker activityTracker;
 
-    public CharacterController(BlizzardApiService blizzardApiService) {
+    public CharacterController(BlizzardApiService blizzardApiService, CharacterActivityTracker activityTracker) {
         this.blizzardApiService = blizzardApiService;
+        this.activityTracker = activityTracker;
     }
 
     @GetMapping("/{realm}/{name}")
-    public String getCharacter(@PathVariable String realm, @PathVariable String name) {
-        return blizzardApiService.getCharacterProfile(realm, name);
+    public CharacterProfile getCharacter(@PathVariable String realm, @PathVariable String name,
+                                         @RequestParam(defaultValue = "eu") Region region) {
+        activityTracker.recordRequest(region, realm, name);
+        return blizzardApiService.getCharacterProfile(region, realm, name);
     }
 }
@@ -1,72 +1,106 @@
 package com.nl.wowapi.boble.controller;
 
-import com.nl.wowapi.boble.model.CharacterIdentifier;
+import com.nl.wowapi.boble.config.CorsOrigins;
 import com.nl.wowapi.boble.model.CharacterOverviewDto;
-import com.nl.wowapi.boble.service.CharacterOverviewService;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.core.io.ClassPathResource;
+import com.nl.wowapi.boble.model.OverviewPage;
+import com.nl.wowapi.boble.model.OverviewQuery;
+import com.nl.wowapi.boble.model.OverviewSortField;
+import com.nl.wowapi.boble.model.UnresolvedCharacter;
+import com.nl.wowapi.boble.service.OverviewStreamService;
+import com.nl.wowapi.boble.service.TeamOverviewService;
+import com.nl.wowapi.boble.service.TeamSnapshot;
+import com.nl.wowapi.boble.util.RequestTrace;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/characters")
-@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173", "http://nl-rooster-alb-615277410.eu-west-1.elb.amazonaws.com"})
+@CrossOrigin(origins = CorsOrigins.ALLOWED,
+        exposedHeaders = CharactersController.TOTAL_COUNT_HEADER)
 public class CharactersController {
 
-    private final CharacterOverviewService characterOverviewService;
-    private final ObjectMapper objectMapper;
+    // Number of rows matching the filters, across all pages.
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
 
-    public CharactersController(CharacterOverviewService characterOverviewService) {
-        this.characterOverviewService = characterOverviewService;
-        this.objectMapper = new ObjectMapper();
+    // Besides JSON, the overview is available as Smile and CBOR through the Accept header; see BinaryFormatsConfig.
+    private static final String SMILE = "application/x-jackson-smile";
+
+    private final TeamOverviewService teamOverviewService;
+    private final OverviewStreamService overviewStreamService;
+
+    public CharactersController(TeamOverviewService teamOverviewService, OverviewStreamService overviewStreamService) {
+        this.teamOverviewService = teamOverviewService;
+        this.overviewStreamService = overviewStreamService;
     }
 
-    @GetMapping("/overview/{team}")
-    public List<CharacterOverviewDto> getTeamCharacters(@PathVariable String team) {
-        String jsonFile = "/characters-" + team.toLowerCase() + ".json";
-        List<CharacterIdentifier> characterList = loadCharacterIdentifiers(jsonFile);
-        List<CharacterOverviewDto> result = new ArrayList<>();
-        for (CharacterIdentifier id : characterList) {
-            try {
-                result.add(characterOverviewService.getCharacterOverview(id.getRealm(), id.getName(), "eu"));
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-        return result;
+    /**
+     * Team overview, optionally sorted, filtered and paged, e.g.
+     * {@code ?sort=mythicRating&order=desc&role=Healer,Tank&page=0&size=20}. See {@link OverviewQuery}.
+     * {@code deadlineMs} caps how long to wait for characters being reloaded; rows that miss it come back
+     * with {@code incomplete: true}.
+     */
+    @GetMapping(value = "/overview/{team}", produces = {MediaType.APPLICATION_JSON_VALUE, SMILE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<List<CharacterOverviewDto>> getTeamCharacters(@PathVariable String team, OverviewQuery query,
+                                                                        @RequestParam(required = false) Long deadlineMs) {
+        return queryTeamOverview(team, query, deadlineMs);
     }
 
-    @GetMapping("/overview")
-    public List<CharacterOverviewDto> getAllCharacterOverviews(@RequestParam("team") String team) {
-        String jsonFile = "characters-" + team.toLowerCase() + ".json";
-        List<CharacterIdentifier> characterList = loadCharacterIdentifiers(jsonFile);
-        List<CharacterOverviewDto> result = new ArrayList<>();
-        for (CharacterIdentifier id : characterList) {
-            try {
-                result.add(characterOverviewService.getCharacterOverview(id.getRealm(), id.getName(), "eu"));
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-        return result;
+    @GetMapping(value = "/overview", produces = {MediaType.APPLICATION_JSON_VALUE, SMILE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<List<CharacterOverviewDto>> getAllCharacterOverviews(@RequestParam("team") String team, OverviewQuery query,
+                                                                               @RequestParam(required = false) Long deadlineMs) {
+        return queryTeamOverview(team, query, deadlineMs);
+    }
+
+    /**
+     * Live overview as Server-Sent Events: a "snapshot" event with all rows, then a "change" event per character
+     * whose item level, rating, spec or parse score changes. EventSource reconnects with {@code Last-Event-ID};
+     * {@code lastEventId} does the same for clients that can't set headers.
+     */
+    @GetMapping(value = "/stream/{team}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTeamOverview(@PathVariable String team,
+                                         @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                                         @RequestParam(required = false) String lastEventId) {
+        return overviewStreamService.subscribe(team, lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
     }
 
     /**
-     * Reads a JSON file from the resources (e.g., "/characters-boble.json") and maps it to a list of CharacterIdentifier.
+     * Roster entries missing from the overview because Blizzard couldn't resolve them (renamed, deleted, ...).
      */
-    private List<CharacterIdentifier> loadCharacterIdentifiers(String jsonFilePath) {
-        try {
-            ClassPathResource resource = new ClassPathResource(jsonFilePath.startsWith("/") ? jsonFilePath.substring(1) : jsonFilePath);
-            try (InputStream is = resource.getInputStream()) {
-                return objectMapper.readValue(is, new TypeReference<List<CharacterIdentifier>>() {});
+    @GetMapping("/unresolved/{team}")
+    public List<UnresolvedCharacter> getUnresolvedCharacters(@PathVariable String team) {
+        return teamOverviewService.getUnresolved(team);
+    }
+
+    private ResponseEntity<List<CharacterOverviewDto>> queryTeamOverview(String team, OverviewQuery query, Long deadlineMs) {
+        OverviewSortField sortField = null;
+        if (query.sort() != null && !query.sort().isBlank()) {
+            sortField = OverviewSortField.fromFieldName(query.sort());
+            if (sortField == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown sort field: " + query.sort());
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read " + jsonFilePath, e);
         }
+        if ((query.page() != null && query.page() < 0) || (query.size() != null && query.size() <= 0)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must be >= 0 and size > 0");
+        }
+        if (deadlineMs != null && deadlineMs <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "deadlineMs must be > 0");
+        }
+
+        teamOverviewService.recordView(team);
+        OverviewPage page;
+        try (RequestTrace.Span span = RequestTrace.start("overview")) {
+            TeamSnapshot snapshot = teamOverviewService.getSnapshot(team, deadlineMs);
+            span.attribute("complete", String.valueOf(snapshot.isComplete()));
+            page = snapshot.query(query, sortField);
+        }
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(page.total()))
+                .body(page.rows());
     }
 }
@@ -0,0 +1,48 @@
+package com.nl.wowapi.boble.controller;
+
+import com.nl.wowapi.boble.config.CorsOrigins;
+import com.nl.wowapi.boble.model.CharacterHistory;
+import com.nl.wowapi.boble.model.Region;
+import com.nl.wowapi.boble.service.CharacterHistoryService;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/history")
+@CrossOrigin(origins = CorsOrigins.ALLOWED)
+public class HistoryController {
+
+    private static final Duration DEFAULT_RANGE = Duration.ofDays(30);
+
+    private final CharacterHistoryService characterHistoryService;
+
+    public HistoryController(CharacterHistoryService characterHistoryService) {
+        this.characterHistoryService = characterHistoryService;
+    }
+
+    /**
+     * Item level, rating and parse score series for every character on a team.
+     * {@code from} and {@code to} are ISO-8601 instants and default to the last 30 days.
+     */
+    @GetMapping("/{team}")
+    public List<CharacterHistory> getTeamHistory(@PathVariable String team,
+                                                 @RequestParam(required = false) Instant from,
+                                                 @RequestParam(required = false) Instant to) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_RANGE);
+        return characterHistoryService.getTeamHistory(team, start, end);
+    }
+
+    @GetMapping("/character/{realm}/{name}")
+    public CharacterHistory getCharacterHistory(@PathVariable String realm, @PathVariable String name,
+                                                @RequestParam(required = false) Instant from,
+                                                @RequestParam(required = false) Instant to,
+                                                @RequestParam(defaultValue = "eu") Region region) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_RANGE);
+        return characterHistoryService.getCharacterHistory(region, realm, name, start, end);
+    }
+}
@@ -0,0 +1,57 @@
+package com.nl.wowapi.boble.controller;
+
+import com.nl.wowapi.boble.config.CorsOrigins;
+import com.nl.wowapi.boble.model.IconSpriteIndex;
+import com.nl.wowapi.boble.service.ClassIconService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+
+// Icon URLs carry a content hash (?v=...), so responses can be cached by browsers and the ALB for a year.
+@RestController
+@RequestMapping("/icons")
+@CrossOrigin(origins = CorsOrigins.ALLOWED)
+public class IconController {
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    private final ClassIconService classIconService;
+
+    public IconController(ClassIconService classIconService) {
+        this.classIconService = classIconService;
+    }
+
+    @GetMapping("/sprite.png")
+    public ResponseEntity<byte[]> getSprite() {
+        return png(classIconService.getSprite());
+    }
+
+    // Not versioned itself, so only cached briefly; it points at the versioned sprite URL.
+    @GetMapping("/sprite.json")
+    public ResponseEntity<IconSpriteIndex> getSpriteIndex() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofHours(1)).cachePublic())
+                .eTag(classIconService.getVersion())
+                .body(classIconService.getSpriteIndex());
+    }
+
+    @GetMapping("/{name}.png")
+    public ResponseEntity<byte[]> getIcon(@PathVariable String name) {
+        byte[] icon = classIconService.getIcon(name);
+        if (icon == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return png(icon);
+    }
+
+    private ResponseEntity<byte[]> png(byte[] bytes) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .cacheControl(IMMUTABLE)
+                .eTag(classIconService.getVersion())
+                .body(bytes);
+    }
+}
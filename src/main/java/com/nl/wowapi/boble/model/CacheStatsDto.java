@@ -0,0 +1,15 @@
+package com.nl.wowapi.boble.model;
+
+/**
+ * Size and hit statistics of one cache, as reported by the admin endpoint.
+ */
+public record CacheStatsDto(String name,
+                            long estimatedSize,
+                            long weightedSizeBytes,
+                            long maxWeightBytes,
+                            long hitCount,
+                            long missCount,
+                            double hitRate,
+                            long evictionCount,
+                            long evictionWeightBytes) {
+}
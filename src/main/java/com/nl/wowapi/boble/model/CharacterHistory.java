@@ -0,0 +1,9 @@
+package com.nl.wowapi.boble.model;
+
+import java.util.List;
+
+/**
+ * The recorded progression of a single character within a time range.
+ */
+public record CharacterHistory(String name, String realm, List<HistoryPoint> points) {
+}
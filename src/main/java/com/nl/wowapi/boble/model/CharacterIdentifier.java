@@ -1,6 +1,16 @@
 package com.nl.wowapi.boble.model;
 
-public record CharacterIdentifier(String realm, String name) {
+/**
+ * A roster entry. Roster files declare each character's region; entries without one are EU characters.
+ */
+public record CharacterIdentifier(String realm, String name, Region region) {
+
+    public CharacterIdentifier {
+        if (region == null) {
+            region = Region.EU;
+        }
+    }
+
     public String getRealm() {
         return realm;
     }
@@ -8,4 +18,8 @@ public record CharacterIdentifier(String realm, String name) {
     public String getName() {
         return name;
     }
+
+    public Region getRegion() {
+        return region;
+    }
 }
@@ -2,6 +2,10 @@ package com.nl.wowapi.boble.model;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.nl.wowapi.boble.util.CharacterNames;
+import com.nl.wowapi.boble.util.IconUrlSerializer;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -13,12 +17,21 @@ public class CharacterOverviewDto {
     private String className;
     private String realm;
     private int equippedItemLevel;
+    @JsonSerialize(using = IconUrlSerializer.class)
     private String classIcon;
     private int mythicRating;
     private String mythicRatingColor;
     private String activeSpec;
     private String role;
     private double bestPerfAvgScore;
+    // True for rows not (re)loaded within the request deadline: either the last known values or a placeholder.
+    private boolean incomplete;
+    private Region region = Region.EU;
+    // The rating and parse score before any display adjustment; null when they were shown as they are.
+    @JsonIgnore
+    private Integer unadjustedMythicRating;
+    @JsonIgnore
+    private Double unadjustedBestPerfAvgScore;
 
     public CharacterOverviewDto(String name, String className, String realm,
                                 int equippedItemLevel, String classIcon,
@@ -36,28 +49,38 @@ public class CharacterOverviewDto {
         this.bestPerfAvgScore = bestPerfAvgScore;
     }
 
+    @JsonIgnore
+    public int getUnadjustedMythicRating() {
+        return unadjustedMythicRating != null ? unadjustedMythicRating : mythicRating;
+    }
+
+    @JsonIgnore
+    public double getUnadjustedBestPerfAvgScore() {
+        return unadjustedBestPerfAvgScore != null ? unadjustedBestPerfAvgScore : bestPerfAvgScore;
+    }
+
     public String getBlizzardUrl() {
-        return "https://worldofwarcraft.blizzard.com/en-gb/character/eu/"
+        return "https://worldofwarcraft.blizzard.com/" + region.siteLocale() + "/character/" + region.slug() + "/"
                 + normalizeRealm(realm) + "/" + normalizeName(name);
     }
 
     public String getRaiderIoUrl() {
-        return "https://raider.io/characters/eu/"
+        return "https://raider.io/characters/" + region.slug() + "/"
                 + normalizeRealm(realm) + "/" + normalizeName(name)
                 + "?season=season-tww-2";
     }
 
     public String getWarcraftLogsUrl() {
-        return "https://www.warcraftlogs.com/character/eu/"
+        return "https://www.warcraftlogs.com/character/" + region.slug() + "/"
                 + normalizeRealm(realm) + "/" + normalizeName(name);
     }
 
     // Helper methods to normalize realm and name (for URL compatibility)
     private String normalizeRealm(String realm) {
-        return realm.toLowerCase().replace(" ", "-");
+        return CharacterNames.realmSlug(realm);
     }
 
     private String normalizeName(String name) {
-        return name.toLowerCase();
+        return CharacterNames.nameSlug(name);
     }
 }
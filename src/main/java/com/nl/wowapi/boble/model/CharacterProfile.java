@@ -0,0 +1,9 @@
+package com.nl.wowapi.boble.model;
+
+/**
+ * The fields of a Blizzard character profile the overview uses, as kept in the characterProfiles cache.
+ * Class, spec and realm names are interned, since a handful of values repeat across every roster.
+ */
+public record CharacterProfile(String name, String className, String realm, int equippedItemLevel,
+                               String activeSpec, Role role, long lastLoginTimestamp) {
+}
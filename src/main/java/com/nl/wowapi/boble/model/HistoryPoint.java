@@ -0,0 +1,9 @@
+package com.nl.wowapi.boble.model;
+
+import java.time.Instant;
+
+/**
+ * One recorded sample of a character's progression.
+ */
+public record HistoryPoint(Instant timestamp, int equippedItemLevel, int mythicRating, double bestPerfAvgScore) {
+}
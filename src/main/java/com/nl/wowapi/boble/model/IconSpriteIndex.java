@@ -0,0 +1,14 @@
+package com.nl.wowapi.boble.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.nl.wowapi.boble.util.IconUrlSerializer;
+
+import java.util.Map;
+
+/**
+ * Describes the class icon sprite sheet: every icon is {@code iconSize} pixels square and laid out
+ * left to right, at the x offset given per class key.
+ */
+public record IconSpriteIndex(@JsonSerialize(using = IconUrlSerializer.class) String spriteUrl,
+                              int iconSize, Map<String, Integer> offsets) {
+}
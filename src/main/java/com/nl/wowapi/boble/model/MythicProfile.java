@@ -0,0 +1,14 @@
+package com.nl.wowapi.boble.model;
+
+import java.util.Locale;
+
+/**
+ * Current Mythic+ rating and its display color, as kept in the mythicProfiles cache.
+ * The color is packed as 0xRRGGBB.
+ */
+public record MythicProfile(int rating, int rgb, float alpha) {
+
+    public String color() {
+        return String.format(Locale.ROOT, "rgba(%d,%d,%d,%.2f)", (rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF, alpha);
+    }
+}
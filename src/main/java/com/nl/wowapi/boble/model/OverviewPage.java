@@ -0,0 +1,9 @@
+package com.nl.wowapi.boble.model;
+
+import java.util.List;
+
+/**
+ * One page of a team overview and the number of rows matching the filters over all pages.
+ */
+public record OverviewPage(List<CharacterOverviewDto> rows, int total) {
+}
@@ -0,0 +1,24 @@
+package com.nl.wowapi.boble.model;
+
+import java.util.List;
+
+/**
+ * Optional sorting, filtering and paging of a team overview, bound from the request parameters.
+ * Filters take one or more comma separated values and are matched case-insensitively.
+ *
+ * @param sort      mythicRating, equippedItemLevel or bestPerfAvgScore; roster order when absent.
+ * @param order     asc or desc (default).
+ * @param role      only rows with one of these roles.
+ * @param className only rows with one of these classes.
+ * @param realm     only rows on one of these realms.
+ * @param page      zero based page number.
+ * @param size      page size; all rows when absent.
+ */
+public record OverviewQuery(String sort, String order,
+                            List<String> role, List<String> className, List<String> realm,
+                            Integer page, Integer size) {
+
+    public boolean descending() {
+        return !"asc".equalsIgnoreCase(order);
+    }
+}
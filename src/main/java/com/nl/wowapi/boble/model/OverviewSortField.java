@@ -0,0 +1,36 @@
+package com.nl.wowapi.boble.model;
+
+import java.util.Comparator;
+
+/**
+ * The overview columns that can be sorted on server side, by their JSON field name.
+ */
+public enum OverviewSortField {
+    MYTHIC_RATING("mythicRating", Comparator.comparingInt(CharacterOverviewDto::getMythicRating)),
+    EQUIPPED_ITEM_LEVEL("equippedItemLevel", Comparator.comparingInt(CharacterOverviewDto::getEquippedItemLevel)),
+    BEST_PERF_AVG_SCORE("bestPerfAvgScore", Comparator.comparingDouble(CharacterOverviewDto::getBestPerfAvgScore));
+
+    private final String fieldName;
+    private final Comparator<CharacterOverviewDto> comparator;
+
+    OverviewSortField(String fieldName, Comparator<CharacterOverviewDto> comparator) {
+        this.fieldName = fieldName;
+        this.comparator = comparator;
+    }
+
+    public Comparator<CharacterOverviewDto> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @return the sort field with the given JSON field name, or null if there is none.
+     */
+    public static OverviewSortField fromFieldName(String fieldName) {
+        for (OverviewSortField field : values()) {
+            if (field.fieldName.equalsIgnoreCase(fieldName)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,7 @@
+package com.nl.wowapi.boble.model;
+
+/**
+ * The part of a character's Warcraft Logs zone rankings the overview shows, as kept in the zoneRankings cache.
+ */
+public record RaidPerformance(double bestPerformanceAverage) {
+}
@@ -0,0 +1,62 @@
+package com.nl.wowapi.boble.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Locale;
+
+/**
+ * A Blizzard API region. Characters, caches, connection pools and rate budgets are all partitioned by region.
+ */
+public enum Region {
+    EU("en_GB", "en-gb"),
+    US("en_US", "en-us"),
+    KR("ko_KR", "ko-kr"),
+    TW("zh_TW", "zh-tw");
+
+    private final String apiLocale;
+    private final String siteLocale;
+
+    Region(String apiLocale, String siteLocale) {
+        this.apiLocale = apiLocale;
+        this.siteLocale = siteLocale;
+    }
+
+    /**
+     * The lowercase region id used in hosts, namespaces, URLs and roster files, e.g. "eu".
+     */
+    @JsonValue
+    public String slug() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public String profileNamespace() {
+        return "profile-" + slug();
+    }
+
+    public String dynamicNamespace() {
+        return "dynamic-" + slug();
+    }
+
+    public String apiLocale() {
+        return apiLocale;
+    }
+
+    // Locale segment of worldofwarcraft.blizzard.com links
+    public String siteLocale() {
+        return siteLocale;
+    }
+
+    /**
+     * @throws IllegalArgumentException if there's no region with that id.
+     */
+    @JsonCreator
+    public static Region fromSlug(String slug) {
+        for (Region region : values()) {
+            if (region.slug().equalsIgnoreCase(slug.trim())) {
+                return region;
+            }
+        }
+        throw new IllegalArgumentException("Unknown region: " + slug);
+    }
+}
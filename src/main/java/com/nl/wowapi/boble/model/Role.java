@@ -0,0 +1,55 @@
+package com.nl.wowapi.boble.model;
+
+import java.util.Locale;
+
+/**
+ * The role a character plays with its active spec.
+ */
+public enum Role {
+    TANK("Tank"),
+    HEALER("Healer"),
+    DPS("DPS");
+
+    private final String displayName;
+
+    Role(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String displayName() {
+        return displayName;
+    }
+
+    public static Role of(String className, String specName) {
+        className = className.toLowerCase(Locale.ROOT);
+        specName = specName.toLowerCase(Locale.ROOT);
+        return switch (className) {
+            case "warrior" -> specName.equals("protection") ? TANK : DPS;
+            case "paladin" -> {
+                if (specName.equals("holy")) yield HEALER;
+                if (specName.equals("protection")) yield TANK;
+                yield DPS;
+            }
+            case "hunter" -> DPS;
+            case "rogue" -> DPS;
+            case "priest" -> (specName.equals("discipline") || specName.equals("holy")) ? HEALER : DPS;
+            case "death knight" -> specName.equals("blood") ? TANK : DPS;
+            case "shaman" -> specName.equals("restoration") ? HEALER : DPS;
+            case "mage" -> DPS;
+            case "warlock" -> DPS;
+            case "monk" -> {
+                if (specName.equals("brewmaster")) yield TANK;
+                if (specName.equals("mistweaver")) yield HEALER;
+                yield DPS;
+            }
+            case "druid" -> {
+                if (specName.equals("guardian")) yield TANK;
+                if (specName.equals("restoration")) yield HEALER;
+                yield DPS;
+            }
+            case "demon hunter" -> specName.equals("vengeance") ? TANK : DPS;
+            case "evoker" -> specName.equals("preservation") ? HEALER : DPS;
+            default -> DPS;
+        };
+    }
+}
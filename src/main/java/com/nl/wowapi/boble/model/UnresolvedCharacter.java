@@ -0,0 +1,15 @@
+package com.nl.wowapi.boble.model;
+
+import java.time.Instant;
+
+/**
+ * A remembered failed lookup of a character.
+ *
+ * @param resource   which upstream lookup failed, e.g. "profile" or "mythic".
+ * @param status     the HTTP status, or 0 when no response was received.
+ * @param retryAfter when the lookup will be attempted again.
+ */
+public record UnresolvedCharacter(String resource, Region region, String realm, String name,
+                                  UpstreamErrorClass errorClass, int status, String message,
+                                  Instant since, Instant retryAfter) {
+}
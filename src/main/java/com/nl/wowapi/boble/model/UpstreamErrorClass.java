@@ -0,0 +1,17 @@
+package com.nl.wowapi.boble.model;
+
+/**
+ * Kinds of failed upstream lookups that are remembered for a while instead of being retried on every request.
+ */
+public enum UpstreamErrorClass {
+    /** 404: renamed, transferred, deleted or misspelled character. */
+    NOT_FOUND,
+    /** Any other 4xx except 401 and 429. */
+    CLIENT_ERROR,
+    /** 429 */
+    RATE_LIMITED,
+    /** 5xx */
+    SERVER_ERROR,
+    /** Connection failures and timeouts. */
+    UNAVAILABLE
+}
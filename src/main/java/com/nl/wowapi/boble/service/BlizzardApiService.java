@@ -2,14 +2,13 @@ package com.nl.wowapi.boble.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
-import org.apache.hc.core5.http.io.entity.StringEntity;
-import org.apache.hc.core5.http.message.BasicHeader;
-import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import com.nl.wowapi.boble.config.BlizzardRegionClients;
+import com.nl.wowapi.boble.model.CharacterProfile;
+import com.nl.wowapi.boble.model.MythicProfile;
+import com.nl.wowapi.boble.model.Region;
+import com.nl.wowapi.boble.model.Role;
+import com.nl.wowapi.boble.util.CharacterNames;
+import com.nl.wowapi.boble.util.RequestTrace;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.HttpHeaders;
@@ -18,16 +17,21 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
 
+import java.io.IOException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
 @Service
 public class BlizzardApiService {
 
-    @Value("${blizzard.api.url}")
+    // Base URL with a {region} placeholder, e.g. https://{region}.api.blizzard.com
+    @Value("${blizzard.api.url:https://{region}.api.blizzard.com}")
     private String blizzardApiUrl;
 
     @Value("${blizzard.client.id}")
@@ -36,45 +40,54 @@ public class BlizzardApiService {
     @Value("${blizzard.client.secret}")
     private String clientSecret;
 
-    private String accessToken;
+    private volatile String accessToken;
 
-    public BlizzardApiService() {
+    // The access token is valid in every region; pools and request budgets are per region.
+    private final BlizzardRegionClients regionClients;
+    private final RestTemplate tokenRestTemplate;
+    private final NegativeResultCache negativeResultCache;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public BlizzardApiService(BlizzardRegionClients regionClients, RestTemplate upstreamRestTemplate,
+                              NegativeResultCache negativeResultCache) {
+        this.regionClients = regionClients;
+        this.tokenRestTemplate = upstreamRestTemplate;
+        this.negativeResultCache = negativeResultCache;
     }
 
     public String getAccessToken() {
-        if (this.accessToken == null || this.accessToken.isEmpty()) {
-            this.accessToken = fetchAccessToken();
+        String token = this.accessToken;
+        if (token == null || token.isEmpty()) {
+            // One fetch on a cold start, not one per worker that finds the token missing.
+            synchronized (this) {
+                token = this.accessToken;
+                if (token == null || token.isEmpty()) {
+                    token = fetchAccessToken();
+                    this.accessToken = token;
+                }
+            }
         }
-        return this.accessToken;
+        return token;
     }
 
     public String fetchAccessToken() {
-        String url = "https://oauth.battle.net/token";
+        URI uri = URI.create("https://oauth.battle.net/token");
         String auth = clientId + ":" + clientSecret;
         String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
 
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-            HttpPost request = new HttpPost(url);
-
-            // ✅ Set headers
-            request.setHeader(new BasicHeader(HttpHeaders.AUTHORIZATION, "Basic " + encodedAuth));
-            request.setHeader(new BasicHeader(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded"));
-            request.setHeader(new BasicHeader(HttpHeaders.ACCEPT, "application/json"));
-
-            // ✅ Set request body
-            request.setEntity(new StringEntity("grant_type=client_credentials", StandardCharsets.UTF_8));
-
-            // ✅ Execute request
-            try (CloseableHttpResponse response = httpClient.execute(request, HttpCoreContext.create())) {
-                org.apache.hc.core5.http.HttpEntity entity = response.getEntity();
-                if (entity != null) {
-                    String responseBody = EntityUtils.toString(entity, StandardCharsets.UTF_8);
-                    System.out.println("OAuth Response: " + responseBody);
-                    return extractAccessToken(responseBody);
-                }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.AUTHORIZATION, "Basic " + encodedAuth);
+        headers.set(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded");
+        headers.set(HttpHeaders.ACCEPT, "application/json");
+        HttpEntity<String> entity = new HttpEntity<>("grant_type=client_credentials", headers);
 
+        // Through the pooled upstream client, so the token call is bounded by the caller's Deadline too.
+        try (RequestTrace.Span span = RequestTrace.start("blizzard-token")) {
+            ResponseEntity<String> response = tokenRestTemplate.exchange(uri, HttpMethod.POST, entity, String.class);
+            if (response.getBody() != null) {
+                return extractAccessToken(response.getBody());
             }
-        } catch (Exception e) {
+        } catch (RestClientException e) {
             e.printStackTrace();
         }
         throw new RuntimeException("Failed to retrieve access token");
@@ -97,18 +110,22 @@ public class BlizzardApiService {
         return headers;
     }
 
-    public String fetchWoWTokenPrice() {
-        String url = blizzardApiUrl + "/data/wow/token/?namespace=dynamic-eu";
+    public String fetchWoWTokenPrice(Region region) {
+        URI uri = UriComponentsBuilder.fromUriString(blizzardApiUrl)
+                .path("/data/wow/token/")
+                .queryParam("namespace", region.dynamicNamespace())
+                .buildAndExpand(region.slug())
+                .toUri();
 
         HttpHeaders headers = new HttpHeaders();
         headers.set(HttpHeaders.AUTHORIZATION, "Bearer " + getAccessToken()); // ✅ Use Bearer Token
         headers.set(HttpHeaders.ACCEPT, "application/json"); // ✅ Ensure correct response type
 
         HttpEntity<String> entity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
 
         try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            regionClients.acquire(region);
+            ResponseEntity<String> response = regionClients.restTemplate(region).exchange(uri, HttpMethod.GET, entity, String.class);
             return response.getBody();
         } catch (HttpClientErrorException e) {
             System.err.println("Error fetching WoW Token price: " + e.getStatusCode() + " - " + e.getResponseBodyAsString());
@@ -116,44 +133,105 @@ public class BlizzardApiService {
         }
     }
 
-    @Cacheable(value = "characterProfiles", key = "#realm + '_' + #characterName")
-    public String getCharacterProfile(String realm, String characterName) {
-        String realmSlug = realm.trim().toLowerCase().replaceAll("\\s+", "-");
-        String url = blizzardApiUrl + "/profile/wow/character/"
-                + realmSlug + "/" + characterName.toLowerCase()
-                + "?namespace=profile-eu&locale=en_GB";
+    /**
+     * Fetches a character profile and keeps only the fields the overview needs, so cache hits
+     * hold a few dozen bytes instead of the full document and need no parsing.
+     */
+    @Cacheable(value = "characterProfiles", keyGenerator = "characterKeyGenerator", cacheResolver = "regionCacheResolver",
+            sync = true)
+    public CharacterProfile getCharacterProfile(Region region, String realm, String characterName) {
+        RequestTrace.attribute("cache", "miss");
+        negativeResultCache.check(NegativeResultCache.PROFILE, region, realm, characterName);
+        URI uri = characterUri(region, realm, characterName);
 
         HttpEntity<String> entity = new HttpEntity<>(createAuthHeaders());
-        RestTemplate restTemplate = new RestTemplate();
+        // Outside the try: running out of our own budget says nothing about the character.
+        regionClients.acquire(region);
 
         try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            return response.getBody();
+            ResponseEntity<String> response = regionClients.restTemplate(region).exchange(uri, HttpMethod.GET, entity, String.class);
+            return toCharacterProfile(parse(response.getBody()));
         } catch (HttpClientErrorException e) {
             System.err.println("Error fetching character profile: "
                     + e.getStatusCode() + " - " + e.getResponseBodyAsString());
+            negativeResultCache.record(NegativeResultCache.PROFILE, region, realm, characterName, e);
+            throw e;
+        } catch (RestClientException e) {
+            negativeResultCache.record(NegativeResultCache.PROFILE, region, realm, characterName, e);
             throw e;
         }
     }
 
-    @Cacheable(value = "mythicProfiles", key = "#realm + '_' + #characterName")
-    public String getMythicKeystoneProfile(String realm, String characterName) {
-        String realmSlug = realm.trim().toLowerCase().replaceAll("\\s+", "-");
-        String url = blizzardApiUrl + "/profile/wow/character/"
-                + realmSlug + "/" + characterName.toLowerCase() + "/mythic-keystone-profile"
-                + "?namespace=profile-eu&locale=en_GB";
+    @Cacheable(value = "mythicProfiles", keyGenerator = "characterKeyGenerator", cacheResolver = "regionCacheResolver",
+            sync = true)
+    public MythicProfile getMythicKeystoneProfile(Region region, String realm, String characterName) {
+        RequestTrace.attribute("cache", "miss");
+        negativeResultCache.check(NegativeResultCache.MYTHIC, region, realm, characterName);
+        URI uri = characterUri(region, realm, characterName, "mythic-keystone-profile");
 
         HttpEntity<String> entity = new HttpEntity<>(createAuthHeaders());
-        RestTemplate restTemplate = new RestTemplate();
+        regionClients.acquire(region);
 
         try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            return response.getBody();
+            ResponseEntity<String> response = regionClients.restTemplate(region).exchange(uri, HttpMethod.GET, entity, String.class);
+            return toMythicProfile(parse(response.getBody()));
         } catch (HttpClientErrorException e) {
             System.err.println("Error fetching mythic keystone profile: "
                     + e.getStatusCode() + " - " + e.getResponseBodyAsString());
+            negativeResultCache.record(NegativeResultCache.MYTHIC, region, realm, characterName, e);
+            throw e;
+        } catch (RestClientException e) {
+            negativeResultCache.record(NegativeResultCache.MYTHIC, region, realm, characterName, e);
             throw e;
         }
     }
 
+    // Read as a String and parsed here so the parse shows up as its own span, separate from the HTTP call.
+    private JsonNode parse(String json) {
+        try (RequestTrace.Span span = RequestTrace.start("parse")) {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new RestClientException("Invalid JSON from the Blizzard API", e);
+        }
+    }
+
+    // Class, spec and realm names repeat across all characters, so one interned copy of each is shared.
+    static CharacterProfile toCharacterProfile(JsonNode root) {
+        String className = root.path("character_class").path("name").asText();
+        String activeSpec = root.path("active_spec").path("name").asText();
+        return new CharacterProfile(
+                root.path("name").asText(),
+                className.intern(),
+                root.path("realm").path("name").asText().intern(),
+                root.path("equipped_item_level").asInt(),
+                activeSpec.intern(),
+                Role.of(className, activeSpec),
+                root.path("last_login_timestamp").asLong(0));
+    }
+
+    static MythicProfile toMythicProfile(JsonNode root) {
+        JsonNode ratingNode = root.path("current_mythic_rating");
+        JsonNode colorNode = ratingNode.path("color");
+        int rgb = (colorNode.path("r").asInt(255) & 0xFF) << 16
+                | (colorNode.path("g").asInt(255) & 0xFF) << 8
+                | (colorNode.path("b").asInt(255) & 0xFF);
+        return new MythicProfile(ratingNode.path("rating").asInt(0), rgb, (float) colorNode.path("a").asDouble(1.0));
+    }
+
+    /**
+     * Builds an encoded profile API URI, e.g. https://eu.api.blizzard.com/profile/wow/character/draenor/d%C3%B8dskake.
+     * Passing a URI (rather than a String) to RestTemplate keeps it from being treated as a template.
+     */
+    URI characterUri(Region region, String realm, String characterName, String... subPath) {
+        return UriComponentsBuilder.fromUriString(blizzardApiUrl)
+                .pathSegment("profile", "wow", "character",
+                        CharacterNames.realmSlug(realm), CharacterNames.nameSlug(characterName))
+                .pathSegment(subPath)
+                .queryParam("namespace", region.profileNamespace())
+                .queryParam("locale", region.apiLocale())
+                .encode()
+                .buildAndExpand(region.slug())
+                .toUri();
+    }
+
 }
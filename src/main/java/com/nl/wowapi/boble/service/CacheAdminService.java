@@ -0,0 +1,122 @@
+package com.nl.wowapi.boble.service;
+
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nl.wowapi.boble.config.CharacterKeyGenerator;
+import com.nl.wowapi.boble.config.RegionCacheResolver;
+import com.nl.wowapi.boble.model.CacheStatsDto;
+import com.nl.wowapi.boble.model.CharacterIdentifier;
+import com.nl.wowapi.boble.model.Region;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class CacheAdminService {
+
+    private final CacheManager cacheManager;
+    private final RosterService rosterService;
+    private final NegativeResultCache negativeResultCache;
+    private final TeamOverviewService teamOverviewService;
+
+    public CacheAdminService(CacheManager cacheManager, RosterService rosterService,
+                             NegativeResultCache negativeResultCache, TeamOverviewService teamOverviewService) {
+        this.cacheManager = cacheManager;
+        this.rosterService = rosterService;
+        this.negativeResultCache = negativeResultCache;
+        this.teamOverviewService = teamOverviewService;
+    }
+
+    /**
+     * Returns size and hit statistics for every Caffeine-backed cache.
+     */
+    public List<CacheStatsDto> getStats() {
+        List<CacheStatsDto> result = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+                CacheStats stats = nativeCache.stats();
+                Policy.Eviction<?, ?> eviction = nativeCache.policy().eviction().orElse(null);
+                result.add(new CacheStatsDto(
+                        name,
+                        nativeCache.estimatedSize(),
+                        eviction != null ? eviction.weightedSize().orElse(0) : 0,
+                        eviction != null ? eviction.getMaximum() : 0,
+                        stats.hitCount(),
+                        stats.missCount(),
+                        stats.hitRate(),
+                        stats.evictionCount(),
+                        stats.evictionWeight()
+                ));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Evicts one character from every cache, including any remembered failed lookup, and drops the
+     * overviews of the teams it is on so the eviction shows right away.
+     */
+    public void evictCharacter(Region region, String realm, String characterName) {
+        String key = CharacterKeyGenerator.key(region, realm, characterName);
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.evict(key);
+            }
+        }
+        negativeResultCache.evict(region, realm, characterName);
+        teamOverviewService.invalidateCharacter(region, realm, characterName);
+    }
+
+    /**
+     * Evicts every character on a team from every cache.
+     *
+     * @return the number of characters evicted.
+     */
+    public int evictTeam(String team) {
+        List<CharacterIdentifier> roster = rosterService.getRoster(team);
+        for (CharacterIdentifier id : roster) {
+            evictCharacter(id.getRegion(), id.getRealm(), id.getName());
+        }
+        teamOverviewService.invalidate(team);
+        return roster.size();
+    }
+
+    /**
+     * Clears a whole cache. A cache name without region ("characterProfiles") clears every region's partition.
+     *
+     * @return false if no cache with that name exists.
+     */
+    public boolean clear(String cacheName) {
+        List<String> names = new ArrayList<>();
+        if (cacheManager.getCacheNames().contains(cacheName)) {
+            names.add(cacheName);
+        } else {
+            for (Region region : Region.values()) {
+                String partition = RegionCacheResolver.partitionName(cacheName, region);
+                if (cacheManager.getCacheNames().contains(partition)) {
+                    names.add(partition);
+                }
+            }
+            if (cacheManager.getCacheNames().contains(RegionCacheResolver.overflowPartitionName(cacheName))) {
+                names.add(RegionCacheResolver.overflowPartitionName(cacheName));
+            }
+        }
+        boolean cleared = false;
+        for (String name : names) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+                cleared = true;
+            }
+        }
+        if (cleared) {
+            teamOverviewService.invalidateAll();
+        }
+        return cleared;
+    }
+}
@@ -0,0 +1,70 @@
+package com.nl.wowapi.boble.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nl.wowapi.boble.config.CharacterKeyGenerator;
+import com.nl.wowapi.boble.model.Region;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Keeps track of how active each character is in game (Blizzard's last_login_timestamp) and how often
+ * it is requested here, so cache lifetimes can follow how likely the data is to change and be looked at.
+ * Characters are identified by their cache key, see {@link CharacterKeyGenerator}.
+ */
+@Service
+public class CharacterActivityTracker {
+
+    private static final double HALF_LIFE_NANOS = Duration.ofHours(1).toNanos();
+
+    /**
+     * Request counter that halves every hour, so it approximates the recent request rate.
+     */
+    private record RequestRate(double count, long updatedNanos) {
+
+        double decayedCount(long now) {
+            return count * Math.pow(0.5, (now - updatedNanos) / HALF_LIFE_NANOS);
+        }
+
+        RequestRate plusOne(long now) {
+            return new RequestRate(decayedCount(now) + 1, now);
+        }
+    }
+
+    private final Cache<String, RequestRate> requestRates = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofDays(7))
+            .build();
+
+    private final Cache<String, Long> lastLogins = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofDays(7))
+            .build();
+
+    public void recordRequest(Region region, String realm, String characterName) {
+        long now = System.nanoTime();
+        requestRates.asMap().compute(CharacterKeyGenerator.key(region, realm, characterName),
+                (key, rate) -> (rate != null ? rate : new RequestRate(0, now)).plusOne(now));
+    }
+
+    /**
+     * @return the approximate number of requests per hour over the last few hours.
+     */
+    public double getRequestsPerHour(String key) {
+        RequestRate rate = requestRates.getIfPresent(key);
+        // A counter halving every hour settles at rate / ln(2) for a steady rate per hour.
+        return rate == null ? 0 : rate.decayedCount(System.nanoTime()) * Math.log(2);
+    }
+
+    public void recordLastLogin(String key, long lastLoginEpochMillis) {
+        lastLogins.put(key, lastLoginEpochMillis);
+    }
+
+    /**
+     * @return the last login in epoch milliseconds, or null if unknown.
+     */
+    public Long getLastLogin(String key) {
+        return lastLogins.getIfPresent(key);
+    }
+}
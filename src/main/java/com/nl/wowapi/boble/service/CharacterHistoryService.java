@@ -0,0 +1,126 @@
+package com.nl.wowapi.boble.service;
+
+import com.nl.wowapi.boble.config.CharacterKeyGenerator;
+import com.nl.wowapi.boble.model.CharacterHistory;
+import com.nl.wowapi.boble.model.CharacterIdentifier;
+import com.nl.wowapi.boble.model.CharacterOverviewDto;
+import com.nl.wowapi.boble.model.Region;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class CharacterHistoryService {
+
+    private final RosterService rosterService;
+
+    @Value("${history.dir:data/history}")
+    private String historyDir;
+
+    // A sample identical to the previous one is only stored again after this interval.
+    @Value("${history.min-interval-minutes:10}")
+    private long minIntervalMinutes;
+
+    @Value("${history.downsample-after-days:7}")
+    private long downsampleAfterDays;
+
+    @Value("${history.downsample-bucket-hours:24}")
+    private long downsampleBucketHours;
+
+    // Null when the history file could not be opened; history is then simply not recorded.
+    private HistoryFile historyFile;
+
+    public CharacterHistoryService(RosterService rosterService) {
+        this.rosterService = rosterService;
+    }
+
+    @PostConstruct
+    public void open() {
+        Path path = Path.of(historyDir, "character-history.bin");
+        try {
+            historyFile = new HistoryFile(path);
+            compact();
+        } catch (IOException e) {
+            System.err.println("Character history disabled, could not open " + path + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (historyFile != null) {
+            historyFile.close();
+        }
+    }
+
+    /**
+     * Appends the item level, mythic rating and parse score of a freshly built overview to the history.
+     */
+    public void record(CharacterOverviewDto dto) {
+        if (historyFile == null) {
+            return;
+        }
+        try {
+            historyFile.append(key(dto.getRegion(), dto.getRealm(), dto.getName()), dto.getName(), dto.getRealm(),
+                    Instant.now().getEpochSecond(),
+                    dto.getEquippedItemLevel(),
+                    dto.getMythicRating(),
+                    (int) Math.round(dto.getBestPerfAvgScore() * 100),
+                    Duration.ofMinutes(minIntervalMinutes).toSeconds());
+        } catch (IOException e) {
+            System.err.println("Failed to record history for " + dto.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the recorded samples of one character within [from, to].
+     */
+    public CharacterHistory getCharacterHistory(Region region, String realm, String characterName, Instant from, Instant to) {
+        CharacterHistory history = historyFile == null ? null
+                : historyFile.read(key(region, realm, characterName), from.getEpochSecond(), to.getEpochSecond());
+        return history != null ? history : new CharacterHistory(characterName, realm, List.of());
+    }
+
+    /**
+     * Returns the recorded samples of every character on a team within [from, to].
+     */
+    public List<CharacterHistory> getTeamHistory(String team, Instant from, Instant to) {
+        List<CharacterHistory> result = new ArrayList<>();
+        for (CharacterIdentifier id : rosterService.getRoster(team)) {
+            result.add(getCharacterHistory(id.getRegion(), id.getRealm(), id.getName(), from, to));
+        }
+        return result;
+    }
+
+    /**
+     * Downsamples old points to one per bucket so the file doesn't grow without bound.
+     */
+    @Scheduled(cron = "${history.compaction-cron:0 30 4 * * *}")
+    public void compact() {
+        if (historyFile == null) {
+            return;
+        }
+        long cutoff = Instant.now().minus(Duration.ofDays(downsampleAfterDays)).getEpochSecond();
+        try {
+            int removed = historyFile.compact(cutoff, Duration.ofHours(downsampleBucketHours).toSeconds());
+            if (removed > 0) {
+                System.out.println("Character history compacted, removed " + removed + " points");
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to compact character history: " + e.getMessage());
+        }
+    }
+
+    // Realm display names ("Tarren Mill") and roster realms normalize to the same key.
+    private String key(Region region, String realm, String characterName) {
+        return CharacterKeyGenerator.key(region, realm, characterName);
+    }
+}
@@ -1,10 +1,14 @@
 package com.nl.wowapi.boble.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nl.wowapi.boble.model.CharacterOverviewDto;
-import com.nl.wowapi.boble.model.ZoneRankings;
+import com.nl.wowapi.boble.model.CharacterProfile;
+import com.nl.wowapi.boble.model.MythicProfile;
+import com.nl.wowapi.boble.model.RaidPerformance;
+import com.nl.wowapi.boble.model.Region;
+import com.nl.wowapi.boble.model.UpstreamErrorClass;
+import com.nl.wowapi.boble.util.RequestTrace;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -13,12 +17,15 @@ public class CharacterOverviewService {
 
     private final BlizzardApiService blizzardApiService;
     private final WarcraftLogsClient warcraftLogsClient;
-    private final ObjectMapper objectMapper;
+    private final CharacterHistoryService characterHistoryService;
+    private final ClassIconService classIconService;
 
-    public CharacterOverviewService(BlizzardApiService blizzardApiService, WarcraftLogsClient warcraftLogsClient) {
+    public CharacterOverviewService(BlizzardApiService blizzardApiService, WarcraftLogsClient warcraftLogsClient,
+                                    CharacterHistoryService characterHistoryService, ClassIconService classIconService) {
         this.blizzardApiService = blizzardApiService;
         this.warcraftLogsClient = warcraftLogsClient;
-        this.objectMapper = new ObjectMapper();
+        this.characterHistoryService = characterHistoryService;
+        this.classIconService = classIconService;
     }
 
     /**
@@ -26,125 +33,85 @@ public class CharacterOverviewService {
      *
      * @param realm         The realm of the character.
      * @param characterName The name of the character.
-     * @param region        The region (for example, "eu").
+     * @param region        The region of the realm.
      * @return A fully populated CharacterOverviewDto.
      */
-    public CharacterOverviewDto getCharacterOverview(String realm, String characterName, String region) {
+    public CharacterOverviewDto getCharacterOverview(String realm, String characterName, Region region) {
         try {
-            // Retrieve Blizzard API data
-            String profileJson = blizzardApiService.getCharacterProfile(realm, characterName);
-            String mythicJson = blizzardApiService.getMythicKeystoneProfile(realm, characterName);
+            // Retrieve Blizzard API data (cached as compact projections, so hits need no parsing)
+            // Spans default to a cache hit; the service methods only run, and mark a miss, when the cache misses
+            CharacterProfile profile;
+            try (RequestTrace.Span span = RequestTrace.start("blizzard-profile").attribute("cache", "hit")) {
+                profile = blizzardApiService.getCharacterProfile(region, realm, characterName);
+            }
+            MythicProfile mythic;
+            try (RequestTrace.Span span = RequestTrace.start("blizzard-mythic").attribute("cache", "hit")) {
+                mythic = getMythicKeystoneProfileOrNull(region, realm, characterName);
+            }
 
-            // Parse Blizzard data
-            JsonNode profileRoot = objectMapper.readTree(profileJson);
-            String name = profileRoot.path("name").asText();
-            String className = profileRoot.path("character_class").path("name").asText();
-            String realmName = profileRoot.path("realm").path("name").asText();
-            int equippedItemLevel = profileRoot.path("equipped_item_level").asInt();
-            String activeSpec = profileRoot.path("active_spec").path("name").asText();
-            String classIcon = mapClassNameToIconUrl(className);
-            String role = determineRole(className, activeSpec);
+            String classIcon = classIconService.getIconUrl(profile.className());
 
             int mythicRating = 0;
             String mythicRatingColor = "rgba(255,255,255,1)";
-            if (mythicJson != null && !mythicJson.isEmpty()) {
-                JsonNode mythicRoot = objectMapper.readTree(mythicJson);
-                JsonNode ratingNode = mythicRoot.path("current_mythic_rating");
-                mythicRating = ratingNode.path("rating").asInt(0);
-                JsonNode colorNode = ratingNode.path("color");
-                int r = colorNode.path("r").asInt(255);
-                int g = colorNode.path("g").asInt(255);
-                int b = colorNode.path("b").asInt(255);
-                double a = colorNode.path("a").asDouble(1.0);
-                mythicRatingColor = String.format("rgba(%d,%d,%d,%.2f)", r, g, b, a);
-
-                // Kødde med Hodevine - TODO: Ta vekk
-                if ("hodevine".equalsIgnoreCase(characterName)) {
-                    int penalty = ThreadLocalRandom.current().nextInt(50, 301);
-                    mythicRating = Math.max(0, mythicRating - penalty);
-                }
+            if (mythic != null) {
+                mythicRating = mythic.rating();
+                mythicRatingColor = mythic.color();
             }
 
-            // Retrieve Warcraft Logs data (zone rankings, encounters, etc.)
-            ZoneRankings zoneRankings = warcraftLogsClient.getZoneRankings(characterName, realm.toLowerCase(), region);
-            double bestPerfAvg = zoneRankings.getBestPerformanceAverage();
-
-            // Kode for å "hjelpe" Hodevine sin score - TODO: Ta vekk
-            if ("hodevine".equalsIgnoreCase(characterName)) {
-                int penalty = ThreadLocalRandom.current().nextInt(5, 20);
-                bestPerfAvg = Math.max(0, bestPerfAvg - penalty);
+            // Retrieve Warcraft Logs data (the cached summary of the zone rankings)
+            RaidPerformance raidPerformance;
+            try (RequestTrace.Span span = RequestTrace.start("wcl").attribute("cache", "hit")) {
+                raidPerformance = warcraftLogsClient.getRaidPerformance(region, realm, characterName);
             }
+            double bestPerfAvg = raidPerformance.bestPerformanceAverage();
 
-            // Build and return the merged DTO
-            return new CharacterOverviewDto(
-                    name,
-                    className,
-                    realmName,
-                    equippedItemLevel,
+            // Build the merged DTO and record it for the progression charts
+            CharacterOverviewDto overview = new CharacterOverviewDto(
+                    profile.name(),
+                    profile.className(),
+                    profile.realm(),
+                    profile.equippedItemLevel(),
                     classIcon,
                     mythicRating,
                     mythicRatingColor,
-                    activeSpec,
-                    role,
+                    profile.activeSpec(),
+                    profile.role().displayName(),
                     bestPerfAvg
             );
+            overview.setRegion(region);
+            characterHistoryService.record(overview);
+
+            // Applied after recording, so the history keeps the real values and isn't rewritten on every rebuild
+            if ("hodevine".equalsIgnoreCase(characterName)) {
+                // Kept so the overview stream doesn't report the random adjustment as a change on every rebuild
+                overview.setUnadjustedMythicRating(mythicRating);
+                overview.setUnadjustedBestPerfAvgScore(bestPerfAvg);
+                // Kødde med Hodevine - TODO: Ta vekk
+                if (mythic != null) {
+                    int penalty = ThreadLocalRandom.current().nextInt(50, 301);
+                    overview.setMythicRating(Math.max(0, mythicRating - penalty));
+                }
+                // Kode for å "hjelpe" Hodevine sin score - TODO: Ta vekk
+                int penalty = ThreadLocalRandom.current().nextInt(5, 20);
+                overview.setBestPerfAvgScore(Math.max(0, bestPerfAvg - penalty));
+            }
+            return overview;
         } catch (Exception e) {
             throw new RuntimeException("Failed to get character overview for " + characterName, e);
         }
     }
 
-    private String mapClassNameToIconUrl(String className) {
-        if (className == null || className.isBlank()) {
-            return "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/default.png";
-        }
-        String key = className.toLowerCase().replace(" ", "");
-        return switch (key) {
-            case "deathknight" -> "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/deathknight.png";
-            case "demonhunter"  -> "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/demonhunter.png";
-            case "druid"        -> "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/druid.png";
-            case "hunter"       -> "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/hunter.png";
-            case "mage"         -> "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/mage.png";
-            case "monk"         -> "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/monk.png";
-            case "paladin"      -> "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/paladin.png";
-            case "priest"       -> "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/priest.png";
-            case "rogue"        -> "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/rogue.png";
-            case "shaman"       -> "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/shaman.png";
-            case "warlock"      -> "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/warlock.png";
-            case "warrior"      -> "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/warrior.png";
-            default             -> "https://raw.githubusercontent.com/orourkek/Wow-Icons/master/images/class/64/default.png";
-        };
-    }
-
-    private String determineRole(String className, String specName) {
-        className = className.toLowerCase();
-        specName = specName.toLowerCase();
-        return switch (className) {
-            case "warrior" -> specName.equals("protection") ? "Tank" : "DPS";
-            case "paladin" -> {
-                if (specName.equals("holy")) yield "Healer";
-                if (specName.equals("protection")) yield "Tank";
-                yield "DPS";
-            }
-            case "hunter" -> "DPS";
-            case "rogue" -> "DPS";
-            case "priest" -> (specName.equals("discipline") || specName.equals("holy")) ? "Healer" : "DPS";
-            case "death knight" -> specName.equals("blood") ? "Tank" : "DPS";
-            case "shaman" -> specName.equals("restoration") ? "Healer" : "DPS";
-            case "mage" -> "DPS";
-            case "warlock" -> "DPS";
-            case "monk" -> {
-                if (specName.equals("brewmaster")) yield "Tank";
-                if (specName.equals("mistweaver")) yield "Healer";
-                yield "DPS";
-            }
-            case "druid" -> {
-                if (specName.equals("guardian")) yield "Tank";
-                if (specName.equals("restoration")) yield "Healer";
-                yield "DPS";
+    // Characters that never ran a keystone have no mythic profile; that just means no rating.
+    private MythicProfile getMythicKeystoneProfileOrNull(Region region, String realm, String characterName) {
+        try {
+            return blizzardApiService.getMythicKeystoneProfile(region, realm, characterName);
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        } catch (UnresolvedCharacterException e) {
+            if (e.getUnresolved().errorClass() == UpstreamErrorClass.NOT_FOUND) {
+                return null;
             }
-            case "demon hunter" -> specName.equals("vengeance") ? "Tank" : "DPS";
-            case "evoker" -> specName.equals("preservation") ? "Healer" : "DPS";
-            default -> "DPS";
-        };
+            throw e;
+        }
     }
 }
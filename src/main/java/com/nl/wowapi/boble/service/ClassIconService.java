@@ -0,0 +1,140 @@
+package com.nl.wowapi.boble.service;
+
+import com.nl.wowapi.boble.model.IconSpriteIndex;
+import com.nl.wowapi.boble.util.BlpDecoder;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Converts the bundled BLP class icons to PNG once at startup and keeps them, plus a sprite sheet
+ * of all of them, in memory.
+ */
+@Service
+public class ClassIconService {
+
+    public static final String DEFAULT_ICON = "default";
+    private static final int ICON_SIZE = 64;
+
+    // Absolute base for icon URLs; when empty they are root-relative and IconUrlSerializer adds the host
+    // of each response.
+    @Value("${icons.base-url:}")
+    private String baseUrl;
+
+    private final Map<String, byte[]> icons = new LinkedHashMap<>();
+    private final Map<String, Integer> spriteOffsets = new LinkedHashMap<>();
+    private byte[] sprite;
+    private String version;
+
+    @PostConstruct
+    public void loadIcons() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath:icons/*.blp");
+        Arrays.sort(resources, Comparator.comparing(Resource::getFilename));
+
+        Map<String, BufferedImage> images = new LinkedHashMap<>();
+        for (Resource resource : resources) {
+            String key = resource.getFilename().replace(".blp", "");
+            try (InputStream is = resource.getInputStream()) {
+                images.put(key, scale(BlpDecoder.decode(is.readAllBytes())));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Skipping class icon " + resource.getFilename() + ": " + e.getMessage());
+            }
+        }
+        // Transparent placeholder for unknown classes
+        images.put(DEFAULT_ICON, new BufferedImage(ICON_SIZE, ICON_SIZE, BufferedImage.TYPE_INT_ARGB));
+
+        BufferedImage sheet = new BufferedImage(ICON_SIZE * images.size(), ICON_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = sheet.createGraphics();
+        int x = 0;
+        for (Map.Entry<String, BufferedImage> entry : images.entrySet()) {
+            icons.put(entry.getKey(), toPng(entry.getValue()));
+            graphics.drawImage(entry.getValue(), x, 0, null);
+            spriteOffsets.put(entry.getKey(), x);
+            x += ICON_SIZE;
+        }
+        graphics.dispose();
+        sprite = toPng(sheet);
+        version = hash(sprite);
+    }
+
+    /**
+     * @return the PNG bytes of a class icon, or null if there is none with that key.
+     */
+    public byte[] getIcon(String key) {
+        return icons.get(key);
+    }
+
+    public byte[] getSprite() {
+        return sprite;
+    }
+
+    /**
+     * Content hash of the icon set; it is part of every icon URL so the URLs can be cached forever.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public IconSpriteIndex getSpriteIndex() {
+        return new IconSpriteIndex(baseUrl + "/icons/sprite.png?v=" + version, ICON_SIZE, spriteOffsets);
+    }
+
+    /**
+     * Maps a class name such as "Death Knight" to the URL of its locally served icon.
+     */
+    public String getIconUrl(String className) {
+        String key = className == null ? DEFAULT_ICON : className.toLowerCase(Locale.ROOT).replace(" ", "");
+        if (!icons.containsKey(key)) {
+            key = DEFAULT_ICON;
+        }
+        return baseUrl + "/icons/" + key + ".png?v=" + version;
+    }
+
+    private static BufferedImage scale(BufferedImage image) {
+        if (image.getWidth() == ICON_SIZE && image.getHeight() == ICON_SIZE) {
+            return image;
+        }
+        BufferedImage scaled = new BufferedImage(ICON_SIZE, ICON_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.drawImage(image, 0, 0, ICON_SIZE, ICON_SIZE, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    private static byte[] toPng(BufferedImage image) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
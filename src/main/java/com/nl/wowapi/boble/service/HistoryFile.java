@@ -0,0 +1,456 @@
+package com.nl.wowapi.boble.service;
+
+import com.nl.wowapi.boble.model.CharacterHistory;
+import com.nl.wowapi.boble.model.HistoryPoint;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only binary file holding the progression samples of every character.
+ * <p>
+ * Layout: an 8 byte header ("NLRH", version, 3 reserved bytes) followed by records.
+ * A character record (tag 1) introduces a character key together with its display name and realm,
+ * and implicitly gets the next numeric id. A point record (tag 2) holds that id and the zigzag varint
+ * deltas of the timestamp (epoch seconds), item level, mythic rating and score (in hundredths) against
+ * the previous point of the same character, so a typical sample is only a handful of bytes.
+ * <p>
+ * The file is read once through a memory mapping when opened. After that every series is kept in
+ * memory as primitive arrays and new samples are appended to the end of the file.
+ */
+final class HistoryFile implements Closeable {
+
+    private static final int MAGIC = 0x4E4C5248; // "NLRH"
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+
+    private static final byte TAG_CHARACTER = 1;
+    private static final byte TAG_POINT = 2;
+
+    // Tag + id + four varint deltas of at most 10 bytes each.
+    private static final int MAX_POINT_BYTES = 1 + 5 + 4 * 10;
+    // Keys, names and realms are short; a longer length prefix can only come from a damaged file.
+    private static final int MAX_STRING_BYTES = 1024;
+    // A torn write leaves less than one record at the end of the file.
+    private static final int MAX_RECORD_BYTES = Math.max(MAX_POINT_BYTES, 1 + 3 * (5 + MAX_STRING_BYTES));
+
+    private final Path path;
+    private final Map<String, Series> seriesByKey = new HashMap<>();
+    private final List<Series> seriesById = new ArrayList<>();
+    private FileChannel channel;
+
+    HistoryFile(Path path) throws IOException {
+        this.path = path;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long validBytes = load();
+        if (validBytes < channel.size()) {
+            System.err.println("Warning: dropping " + (channel.size() - validBytes)
+                    + " bytes of incomplete history records from " + path);
+            channel.truncate(validBytes);
+        }
+        channel.position(validBytes);
+    }
+
+    /**
+     * Decodes the whole file into memory and returns the number of bytes holding complete records.
+     * Only a record cut short at the very end is dropped; anything else that doesn't decode fails the load,
+     * so damage in the middle of the file never costs the history after it.
+     */
+    private long load() throws IOException {
+        long size = channel.size();
+        if (size < HEADER_BYTES) {
+            channel.truncate(0);
+            ByteBuffer header = header();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            return HEADER_BYTES;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("History file too large to map: " + path);
+        }
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+            throw new IOException("Not a history file: " + path);
+        }
+        buffer.position(HEADER_BYTES);
+
+        long valid = HEADER_BYTES;
+        try {
+            while (buffer.hasRemaining()) {
+                readRecord(buffer);
+                valid = buffer.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // A partially written record at the tail (e.g. after a crash); everything before it is kept.
+            if (size - valid > MAX_RECORD_BYTES) {
+                throw new IOException("Corrupt history record at offset " + valid + " of " + path, e);
+            }
+        } catch (IllegalStateException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt history record at offset " + valid + " of " + path, e);
+        }
+        return valid;
+    }
+
+    private void readRecord(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        if (tag == TAG_CHARACTER) {
+            String key = readString(buffer);
+            String name = readString(buffer);
+            String realm = readString(buffer);
+            Series series = new Series(seriesById.size(), key, name, realm);
+            seriesById.add(series);
+            seriesByKey.put(key, series);
+        } else if (tag == TAG_POINT) {
+            Series series = seriesById.get(readVarInt(buffer));
+            long time = series.lastTime() + readZigZag(buffer);
+            int itemLevel = (int) (series.lastItemLevel() + readZigZag(buffer));
+            int rating = (int) (series.lastRating() + readZigZag(buffer));
+            int score = (int) (series.lastScore() + readZigZag(buffer));
+            series.add(time, itemLevel, rating, score);
+        } else {
+            throw new IllegalStateException("Unknown history record tag " + tag);
+        }
+    }
+
+    /**
+     * Appends a sample for a character, unless nothing changed since its last sample and that sample
+     * is younger than {@code minIntervalSeconds}.
+     *
+     * @return true if the sample was written.
+     */
+    synchronized boolean append(String key, String name, String realm, long epochSecond,
+                                int itemLevel, int rating, int scoreHundredths, long minIntervalSeconds) throws IOException {
+        Series series = seriesByKey.get(key);
+        boolean isNew = series == null;
+        if (isNew) {
+            series = new Series(seriesById.size(), key, name, realm);
+        } else if (series.size > 0) {
+            long lastTime = series.lastTime();
+            boolean unchanged = series.lastItemLevel() == itemLevel
+                    && series.lastRating() == rating
+                    && series.lastScore() == scoreHundredths;
+            if (epochSecond < lastTime || (unchanged && epochSecond - lastTime < minIntervalSeconds)) {
+                return false;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(characterRecordBytes(series) + MAX_POINT_BYTES);
+        if (isNew) {
+            writeCharacter(buffer, series);
+        }
+        writePoint(buffer, series.id,
+                series.lastTime(), series.lastItemLevel(), series.lastRating(), series.lastScore(),
+                epochSecond, itemLevel, rating, scoreHundredths);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        if (isNew) {
+            seriesById.add(series);
+            seriesByKey.put(key, series);
+        }
+        series.add(epochSecond, itemLevel, rating, scoreHundredths);
+        return true;
+    }
+
+    /**
+     * Returns the samples of a character with a timestamp in [fromSecond, toSecond], or null if the
+     * character has never been recorded.
+     */
+    synchronized CharacterHistory read(String key, long fromSecond, long toSecond) {
+        Series series = seriesByKey.get(key);
+        if (series == null) {
+            return null;
+        }
+        List<HistoryPoint> points = new ArrayList<>();
+        for (int i = series.lowerBound(fromSecond); i < series.size && series.times[i] <= toSecond; i++) {
+            points.add(new HistoryPoint(Instant.ofEpochSecond(series.times[i]),
+                    series.itemLevels[i], series.ratings[i], series.scores[i] / 100.0));
+        }
+        return new CharacterHistory(series.name, series.realm, points);
+    }
+
+    /**
+     * Thins out samples older than {@code cutoffSecond} to the last sample per {@code bucketSeconds}
+     * and rewrites the file if anything was removed.
+     *
+     * @return the number of samples removed.
+     */
+    synchronized int compact(long cutoffSecond, long bucketSeconds) throws IOException {
+        // Thinned out on copies: until the rewritten file is in place, memory has to match the old file.
+        List<Series> compacted = new ArrayList<>(seriesById.size());
+        int removed = 0;
+        for (Series series : seriesById) {
+            Series copy = series.copy();
+            removed += copy.downsample(cutoffSecond, bucketSeconds);
+            compacted.add(copy);
+        }
+        if (removed == 0) {
+            return 0;
+        }
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, header());
+            for (Series series : compacted) {
+                ByteBuffer buffer = ByteBuffer.allocate(characterRecordBytes(series) + series.size * MAX_POINT_BYTES);
+                writeCharacter(buffer, series);
+                for (int i = 0; i < series.size; i++) {
+                    if (i == 0) {
+                        writePoint(buffer, series.id, 0, 0, 0, 0,
+                                series.times[i], series.itemLevels[i], series.ratings[i], series.scores[i]);
+                    } else {
+                        writePoint(buffer, series.id,
+                                series.times[i - 1], series.itemLevels[i - 1], series.ratings[i - 1], series.scores[i - 1],
+                                series.times[i], series.itemLevels[i], series.ratings[i], series.scores[i]);
+                    }
+                }
+                buffer.flip();
+                writeFully(out, buffer);
+            }
+            out.force(true);
+        }
+
+        channel.close();
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+        for (int i = 0; i < compacted.size(); i++) {
+            seriesById.get(i).replaceWith(compacted.get(i));
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).put(VERSION);
+        header.position(HEADER_BYTES);
+        header.flip();
+        return header;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static int characterRecordBytes(Series series) {
+        return 1 + 3 * 5 + utf8Length(series.key) + utf8Length(series.name) + utf8Length(series.realm);
+    }
+
+    private static void writeCharacter(ByteBuffer buffer, Series series) {
+        buffer.put(TAG_CHARACTER);
+        writeString(buffer, series.key);
+        writeString(buffer, series.name);
+        writeString(buffer, series.realm);
+    }
+
+    private static void writePoint(ByteBuffer buffer, int id,
+                                   long prevTime, int prevItemLevel, int prevRating, int prevScore,
+                                   long time, int itemLevel, int rating, int score) {
+        buffer.put(TAG_POINT);
+        writeVarLong(buffer, id);
+        writeZigZag(buffer, time - prevTime);
+        writeZigZag(buffer, (long) itemLevel - prevItemLevel);
+        writeZigZag(buffer, (long) rating - prevRating);
+        writeZigZag(buffer, (long) score - prevScore);
+    }
+
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("History string too long: " + value);
+        }
+        writeVarLong(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        if (length > MAX_STRING_BYTES) {
+            throw new IllegalStateException("String length out of range: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeZigZag(ByteBuffer buffer, long value) {
+        writeVarLong(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readZigZag(ByteBuffer buffer) {
+        long encoded = readVarLong(buffer);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    private static void writeVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        long value = readVarLong(buffer);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Varint out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    /**
+     * The samples of one character, stored column-wise and ordered by time.
+     */
+    private static final class Series {
+        final int id;
+        final String key;
+        final String name;
+        final String realm;
+        long[] times = new long[8];
+        int[] itemLevels = new int[8];
+        int[] ratings = new int[8];
+        int[] scores = new int[8];
+        int size;
+
+        Series(int id, String key, String name, String realm) {
+            this.id = id;
+            this.key = key;
+            this.name = name;
+            this.realm = realm;
+        }
+
+        long lastTime() {
+            return size == 0 ? 0 : times[size - 1];
+        }
+
+        int lastItemLevel() {
+            return size == 0 ? 0 : itemLevels[size - 1];
+        }
+
+        int lastRating() {
+            return size == 0 ? 0 : ratings[size - 1];
+        }
+
+        int lastScore() {
+            return size == 0 ? 0 : scores[size - 1];
+        }
+
+        Series copy() {
+            Series copy = new Series(id, key, name, realm);
+            copy.replaceWith(this);
+            return copy;
+        }
+
+        void replaceWith(Series other) {
+            times = Arrays.copyOf(other.times, Math.max(8, other.size));
+            itemLevels = Arrays.copyOf(other.itemLevels, times.length);
+            ratings = Arrays.copyOf(other.ratings, times.length);
+            scores = Arrays.copyOf(other.scores, times.length);
+            size = other.size;
+        }
+
+        void add(long time, int itemLevel, int rating, int score) {
+            if (size == times.length) {
+                int capacity = size * 2;
+                times = Arrays.copyOf(times, capacity);
+                itemLevels = Arrays.copyOf(itemLevels, capacity);
+                ratings = Arrays.copyOf(ratings, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+            times[size] = time;
+            itemLevels[size] = itemLevel;
+            ratings[size] = rating;
+            scores[size] = score;
+            size++;
+        }
+
+        /**
+         * Index of the first sample at or after {@code time}.
+         */
+        int lowerBound(long time) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (times[mid] < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Keeps only the last sample of each bucket before {@code cutoff}; newer samples are untouched.
+         */
+        int downsample(long cutoff, long bucketSeconds) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                boolean keep = times[i] >= cutoff
+                        || i + 1 == size
+                        || times[i] / bucketSeconds != times[i + 1] / bucketSeconds;
+                if (keep) {
+                    times[kept] = times[i];
+                    itemLevels[kept] = itemLevels[i];
+                    ratings[kept] = ratings[i];
+                    scores[kept] = scores[i];
+                    kept++;
+                }
+            }
+            int removed = size - kept;
+            size = kept;
+            return removed;
+        }
+    }
+}
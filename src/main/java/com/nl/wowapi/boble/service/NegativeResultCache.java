@@ -0,0 +1,147 @@
+package com.nl.wowapi.boble.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nl.wowapi.boble.config.CharacterKeyGenerator;
+import com.nl.wowapi.boble.model.CharacterIdentifier;
+import com.nl.wowapi.boble.model.Region;
+import com.nl.wowapi.boble.model.UnresolvedCharacter;
+import com.nl.wowapi.boble.model.UpstreamErrorClass;
+import com.nl.wowapi.boble.util.Deadline;
+import com.nl.wowapi.boble.util.DeadlineTimeoutException;
+import com.nl.wowapi.boble.util.RequestTrace;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers failed upstream lookups per character, each for as long as its error class suggests,
+ * so missing characters don't cost an upstream call on every page load.
+ */
+@Service
+public class NegativeResultCache {
+
+    public static final String PROFILE = "profile";
+    public static final String MYTHIC = "mythic";
+
+    private final Map<UpstreamErrorClass, Duration> ttls = new EnumMap<>(UpstreamErrorClass.class);
+
+    private final Cache<String, UnresolvedCharacter> entries = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfter(new Expiry<String, UnresolvedCharacter>() {
+                @Override
+                public long expireAfterCreate(String key, UnresolvedCharacter value, long currentTime) {
+                    return Math.max(0, Duration.between(Instant.now(), value.retryAfter()).toNanos());
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, UnresolvedCharacter value, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, value, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String key, UnresolvedCharacter value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    public NegativeResultCache(@Value("${negative-cache.not-found-minutes:360}") long notFoundMinutes,
+                               @Value("${negative-cache.client-error-minutes:30}") long clientErrorMinutes,
+                               @Value("${negative-cache.rate-limited-seconds:60}") long rateLimitedSeconds,
+                               @Value("${negative-cache.server-error-seconds:60}") long serverErrorSeconds,
+                               @Value("${negative-cache.unavailable-seconds:30}") long unavailableSeconds) {
+        ttls.put(UpstreamErrorClass.NOT_FOUND, Duration.ofMinutes(notFoundMinutes));
+        ttls.put(UpstreamErrorClass.CLIENT_ERROR, Duration.ofMinutes(clientErrorMinutes));
+        ttls.put(UpstreamErrorClass.RATE_LIMITED, Duration.ofSeconds(rateLimitedSeconds));
+        ttls.put(UpstreamErrorClass.SERVER_ERROR, Duration.ofSeconds(serverErrorSeconds));
+        ttls.put(UpstreamErrorClass.UNAVAILABLE, Duration.ofSeconds(unavailableSeconds));
+    }
+
+    /**
+     * @throws UnresolvedCharacterException if the lookup failed recently and should not be retried yet.
+     */
+    public void check(String resource, Region region, String realm, String characterName) {
+        UnresolvedCharacter unresolved = entries.getIfPresent(key(resource, region, realm, characterName));
+        if (unresolved != null) {
+            RequestTrace.attribute("cache", "negative");
+            throw new UnresolvedCharacterException(unresolved);
+        }
+    }
+
+    /**
+     * Remembers a failed lookup, unless its error class is not worth caching.
+     */
+    public void record(String resource, Region region, String realm, String characterName, Exception e) {
+        UpstreamErrorClass errorClass = classify(e);
+        // A timeout caused by our own deadline says nothing about the character. Timeouts shortened to the
+        // deadline can fire just before it passes, so those are recognized by their exception, not the clock.
+        if (errorClass == null || (errorClass == UpstreamErrorClass.UNAVAILABLE
+                && (Deadline.expired() || DeadlineTimeoutException.isCauseOf(e)))) {
+            return;
+        }
+        int status = e instanceof RestClientResponseException responseException ? responseException.getStatusCode().value() : 0;
+        Instant now = Instant.now();
+        entries.put(key(resource, region, realm, characterName), new UnresolvedCharacter(
+                resource, region, realm, characterName, errorClass, status, e.getMessage(), now, now.plus(ttls.get(errorClass))));
+    }
+
+    public void evict(Region region, String realm, String characterName) {
+        entries.invalidate(key(PROFILE, region, realm, characterName));
+        entries.invalidate(key(MYTHIC, region, realm, characterName));
+    }
+
+    /**
+     * Returns the roster entries whose profile currently can't be resolved.
+     */
+    public List<UnresolvedCharacter> getUnresolved(List<CharacterIdentifier> roster) {
+        List<UnresolvedCharacter> result = new ArrayList<>();
+        for (CharacterIdentifier id : roster) {
+            UnresolvedCharacter unresolved = entries.getIfPresent(key(PROFILE, id.getRegion(), id.getRealm(), id.getName()));
+            if (unresolved != null) {
+                result.add(unresolved);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the error class, or null if the failure should not be cached (e.g. 401, which means our token expired).
+     */
+    private static UpstreamErrorClass classify(Exception e) {
+        if (e instanceof RestClientResponseException responseException) {
+            HttpStatusCode status = responseException.getStatusCode();
+            if (status.value() == 404) {
+                return UpstreamErrorClass.NOT_FOUND;
+            }
+            if (status.value() == 429) {
+                return UpstreamErrorClass.RATE_LIMITED;
+            }
+            if (status.value() == 401) {
+                return null;
+            }
+            if (status.is5xxServerError()) {
+                return UpstreamErrorClass.SERVER_ERROR;
+            }
+            return status.is4xxClientError() ? UpstreamErrorClass.CLIENT_ERROR : null;
+        }
+        if (e instanceof ResourceAccessException) {
+            return UpstreamErrorClass.UNAVAILABLE;
+        }
+        return null;
+    }
+
+    private static String key(String resource, Region region, String realm, String characterName) {
+        return resource + ":" + CharacterKeyGenerator.key(region, realm, characterName);
+    }
+}
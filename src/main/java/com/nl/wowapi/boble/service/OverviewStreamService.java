@@ -0,0 +1,410 @@
+package com.nl.wowapi.boble.service;
+
+import com.nl.wowapi.boble.config.CharacterKeyGenerator;
+import com.nl.wowapi.boble.model.CharacterOverviewDto;
+import com.nl.wowapi.boble.util.IconUrlSerializer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes team overview updates to subscribers over Server-Sent Events.
+ * <p>
+ * A subscriber first gets a "snapshot" event with every row, then a "change" event with the new row whenever
+ * a rebuild changes a character's item level, rating, spec or parse score. Event ids are
+ * {@code <generation>-<sequence>}; a client reconnecting with {@code Last-Event-ID} gets the events it missed
+ * from a short replay buffer, or a new snapshot if they're no longer there (or the server restarted).
+ * Emitters are async, so idle subscribers hold no thread; rebuilds are triggered from the scheduler while
+ * a team has subscribers. Events are queued per subscriber and written by a small send pool, so a slow client
+ * never holds up a rebuild, the scheduler or the other subscribers; one whose queue fills up is disconnected
+ * and catches up through {@code Last-Event-ID} when it reconnects. A team's channel outlives its last subscriber
+ * by one refresh interval, so a client that reconnects after a network blip can still be replayed to.
+ */
+@Service
+public class OverviewStreamService {
+
+    static final String SNAPSHOT_EVENT = "snapshot";
+    static final String CHANGE_EVENT = "change";
+
+    private final TeamOverviewService teamOverviewService;
+    private final RosterService rosterService;
+    private final ExecutorService sendExecutor;
+
+    @Value("${overview.stream.timeout-minutes:30}")
+    private long timeoutMinutes;
+
+    // Number of change events kept per team for clients that reconnect.
+    @Value("${overview.stream.replay-size:256}")
+    private int replaySize;
+
+    @Value("${overview.stream.reconnect-ms:3000}")
+    private long reconnectMs;
+
+    // Events waiting to be written to one subscriber; a subscriber that falls this far behind is dropped.
+    @Value("${overview.stream.queue-size:64}")
+    private int queueSize;
+
+    // How long a channel is kept after its last subscriber left.
+    @Value("${overview.stream.refresh-seconds:60}")
+    private long refreshSeconds;
+
+    // Teams with subscribers, or that had some within the last refresh interval.
+    private final Map<String, TeamChannel> channels = new ConcurrentHashMap<>();
+    // Channel generations: starting from the clock, so they keep increasing across restarts.
+    private final AtomicLong generations = new AtomicLong(System.currentTimeMillis());
+
+    public OverviewStreamService(TeamOverviewService teamOverviewService, RosterService rosterService,
+                                 @Value("${overview.stream.send-threads:4}") int sendThreads) {
+        this.teamOverviewService = teamOverviewService;
+        this.rosterService = rosterService;
+        this.sendExecutor = Executors.newFixedThreadPool(sendThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * Opens a subscription to a team's overview.
+     *
+     * @param lastEventId the id of the last event the client saw, or null for a new subscription.
+     */
+    public SseEmitter subscribe(String team, String lastEventId) {
+        // Checked first, so made-up team names never get a channel.
+        if (!rosterService.hasTeam(team)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown team: " + team);
+        }
+        String key = team.toLowerCase(Locale.ROOT);
+        SseEmitter emitter = newEmitter(Duration.ofMinutes(timeoutMinutes).toMillis());
+        Subscriber subscriber = new Subscriber(emitter, IconUrlSerializer.requestBaseUrl());
+        teamOverviewService.recordView(team);
+
+        while (true) {
+            TeamChannel channel = channels.computeIfAbsent(key, TeamChannel::new);
+            // Fetched outside the channel lock: a rebuild finishing meanwhile needs that lock to publish its changes.
+            TeamSnapshot snapshot = channel.canReplay(lastEventId) ? null : teamOverviewService.getSnapshot(team, null);
+            // Fails if the channel was closed in the meantime; the loop creates a new one.
+            if (channel.add(subscriber, lastEventId, snapshot)) {
+                emitter.onCompletion(() -> channel.remove(subscriber));
+                emitter.onTimeout(() -> channel.remove(subscriber));
+                emitter.onError(e -> channel.remove(subscriber));
+                return emitter;
+            }
+        }
+    }
+
+    // Overridden in tests to capture the events.
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    @EventListener
+    public void onSnapshotRebuilt(TeamSnapshotRebuiltEvent event) {
+        TeamChannel channel = channels.get(event.team());
+        if (channel != null) {
+            channel.publishChanges(event.snapshot());
+        }
+    }
+
+    /**
+     * Keeps the overview of every subscribed team fresh, so changes are pushed without anyone polling.
+     * The 1 ms deadline only starts the rebuild; its changes arrive through {@link #onSnapshotRebuilt}.
+     */
+    @Scheduled(fixedRateString = "${overview.stream.refresh-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void refreshSubscribedTeams() {
+        for (TeamChannel channel : channels.values()) {
+            if (channel.hasSubscribers()) {
+                try {
+                    teamOverviewService.getSnapshot(channel.team, 1L);
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to refresh overview stream for " + channel.team + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Also lets proxies and load balancers see traffic on otherwise idle connections, and closes channels
+    // that have been without subscribers for longer than the grace period.
+    @Scheduled(fixedRateString = "${overview.stream.heartbeat-seconds:15}", timeUnit = TimeUnit.SECONDS)
+    public void sendHeartbeats() {
+        long graceNanos = TimeUnit.SECONDS.toNanos(refreshSeconds);
+        for (TeamChannel channel : channels.values()) {
+            channel.heartbeat();
+            channel.closeIfIdle(graceNanos);
+        }
+    }
+
+    // Changes that are shown on the overview screen; anything else doesn't produce an event. Rating and score
+    // are compared before display adjustments, which can differ on every rebuild without anything changing.
+    static boolean changed(CharacterOverviewDto before, CharacterOverviewDto after) {
+        return before == null
+                || before.getEquippedItemLevel() != after.getEquippedItemLevel()
+                || before.getUnadjustedMythicRating() != after.getUnadjustedMythicRating()
+                || !Objects.equals(before.getActiveSpec(), after.getActiveSpec())
+                || Double.compare(before.getUnadjustedBestPerfAvgScore(), after.getUnadjustedBestPerfAvgScore()) != 0;
+    }
+
+    private static String rowKey(CharacterOverviewDto row) {
+        return CharacterKeyGenerator.key(row.getRegion(), row.getRealm(), row.getName());
+    }
+
+    private record StreamEvent(long sequence, String name, Object data) {
+    }
+
+    /**
+     * One client and the events waiting to be written to it. Events are queued under the channel lock, which
+     * keeps them in order, and written by one send-pool task at a time. Icon URLs get the host of the
+     * subscriber's own request, since the writes happen on other threads.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final String baseUrl;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean dropped = new AtomicBoolean();
+        private volatile TeamChannel channel;
+
+        Subscriber(SseEmitter emitter, String baseUrl) {
+            this.emitter = emitter;
+            this.baseUrl = baseUrl;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        /**
+         * Queues an event without blocking; false if the subscriber is dropped or its queue is full.
+         * Builders collect the written text, so each subscriber needs its own.
+         */
+        boolean offer(SseEmitter.SseEventBuilder event) {
+            if (dropped.get() || !queue.offer(event)) {
+                return false;
+            }
+            scheduleDrain();
+            return true;
+        }
+
+        // Ends the response after the write in progress; the client reconnects and catches up.
+        void drop() {
+            if (dropped.compareAndSet(false, true)) {
+                scheduleDrain();
+            }
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sendExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down.
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!dropped.get() && (event = queue.poll()) != null) {
+                    SseEmitter.SseEventBuilder next = event;
+                    IconUrlSerializer.withBaseUrl(baseUrl, () -> emitter.send(next));
+                }
+                if (dropped.get()) {
+                    queue.clear();
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away; the servlet container completes the emitter.
+                dropped.set(true);
+                queue.clear();
+                channel.remove(this);
+            } finally {
+                draining.set(false);
+            }
+            // Picks up events queued after the last poll but before the flag was cleared.
+            if (!dropped.get() && !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    /**
+     * Subscribers, last published rows and replay buffer of one team. Events are queued to every subscriber
+     * under its lock, so they all see the events in order. The channel, and with it its generation and replay
+     * buffer, is closed once it has been without subscribers for the grace period.
+     */
+    private final class TeamChannel {
+
+        private final String team;
+        // Changes with every restart (and new channel), so ids from before are never mistaken for current ones.
+        private final long generation = generations.incrementAndGet();
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private final Deque<StreamEvent> replay = new ArrayDeque<>();
+        // Rows of the last complete snapshot, by character key; null until the first one is seen.
+        private Map<String, CharacterOverviewDto> rows;
+        private long sequence;
+        // Set once the channel is removed from the map; subscribers must then join a new one.
+        private boolean closed;
+        // System.nanoTime() when the last subscriber left; only meaningful while there are none.
+        private long emptySince;
+
+        TeamChannel(String team) {
+            this.team = team;
+            this.emptySince = System.nanoTime();
+        }
+
+        synchronized boolean hasSubscribers() {
+            return !subscribers.isEmpty();
+        }
+
+        synchronized void remove(Subscriber subscriber) {
+            if (subscribers.remove(subscriber) && subscribers.isEmpty()) {
+                emptySince = System.nanoTime();
+            }
+        }
+
+        synchronized void closeIfIdle(long graceNanos) {
+            if (!closed && subscribers.isEmpty() && System.nanoTime() - emptySince >= graceNanos) {
+                closed = true;
+                channels.remove(team, this);
+            }
+        }
+
+        synchronized boolean canReplay(String lastEventId) {
+            long last = parseSequence(lastEventId);
+            // More missed events than fit in a subscriber's queue would get it dropped right away.
+            if (last < 0 || last > sequence || sequence - last > queueSize) {
+                return false;
+            }
+            // Everything after "last" must still be buffered.
+            return last == sequence || (!replay.isEmpty() && replay.peekFirst().sequence() <= last + 1);
+        }
+
+        /**
+         * Registers a subscriber and queues either the missed events or a full snapshot for it.
+         *
+         * @param snapshot the team overview to send if the missed events can't be replayed.
+         * @return false if the channel was closed and the subscriber has to join a new one.
+         */
+        synchronized boolean add(Subscriber subscriber, String lastEventId, TeamSnapshot snapshot) {
+            if (closed) {
+                return false;
+            }
+            subscriber.channel = this;
+            subscribers.add(subscriber);
+            if (canReplay(lastEventId)) {
+                long last = parseSequence(lastEventId);
+                for (StreamEvent event : replay) {
+                    if (event.sequence() > last) {
+                        offerOrDrop(subscriber, event(event));
+                    }
+                }
+            } else {
+                if (rows == null && snapshot != null && snapshot.isComplete()) {
+                    rows = index(snapshot.getRows());
+                }
+                // The channel's rows can be newer than the snapshot fetched before taking the lock.
+                List<CharacterOverviewDto> current = rows != null ? new ArrayList<>(rows.values())
+                        : snapshot != null ? snapshot.getRows() : List.of();
+                offerOrDrop(subscriber, SseEmitter.event()
+                        .id(eventId(sequence))
+                        .name(SNAPSHOT_EVENT)
+                        .reconnectTime(reconnectMs)
+                        .data(current));
+            }
+            return true;
+        }
+
+        synchronized void publishChanges(TeamSnapshot snapshot) {
+            Map<String, CharacterOverviewDto> next = index(snapshot.getRows());
+            // Without a previous complete snapshot every row is news, e.g. to subscribers that got placeholders.
+            for (Map.Entry<String, CharacterOverviewDto> entry : next.entrySet()) {
+                CharacterOverviewDto before = rows != null ? rows.get(entry.getKey()) : null;
+                if (changed(before, entry.getValue())) {
+                    StreamEvent event = new StreamEvent(++sequence, CHANGE_EVENT, entry.getValue());
+                    replay.addLast(event);
+                    while (replay.size() > replaySize) {
+                        replay.removeFirst();
+                    }
+                    for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+                        offerOrDrop(subscriber, event(event));
+                    }
+                }
+            }
+            rows = next;
+        }
+
+        synchronized void heartbeat() {
+            for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+                offerOrDrop(subscriber, SseEmitter.event().comment("heartbeat"));
+            }
+        }
+
+        private void offerOrDrop(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+            if (!subscriber.offer(event)) {
+                remove(subscriber);
+                subscriber.drop();
+            }
+        }
+
+        private SseEmitter.SseEventBuilder event(StreamEvent event) {
+            return SseEmitter.event()
+                    .id(eventId(event.sequence()))
+                    .name(event.name())
+                    .data(event.data());
+        }
+
+        private String eventId(long sequence) {
+            return generation + "-" + sequence;
+        }
+
+        // -1 if the id is missing or belongs to another generation.
+        private long parseSequence(String eventId) {
+            if (eventId == null) {
+                return -1;
+            }
+            int dash = eventId.indexOf('-');
+            try {
+                if (dash < 0 || Long.parseLong(eventId.substring(0, dash)) != generation) {
+                    return -1;
+                }
+                return Long.parseLong(eventId.substring(dash + 1));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        private Map<String, CharacterOverviewDto> index(List<CharacterOverviewDto> snapshotRows) {
+            Map<String, CharacterOverviewDto> indexed = new LinkedHashMap<>();
+            for (CharacterOverviewDto row : snapshotRows) {
+                indexed.put(rowKey(row), row);
+            }
+            return indexed;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.nl.wowapi.boble.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nl.wowapi.boble.model.CharacterIdentifier;
+import com.nl.wowapi.boble.model.Region;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class RosterService {
+
+    private final ObjectMapper objectMapper;
+
+    // The roster files are bundled in the jar, so each one only needs to be read once.
+    private final Map<String, List<CharacterIdentifier>> rosters = new ConcurrentHashMap<>();
+
+    public RosterService() {
+        this.objectMapper = new ObjectMapper();
+    }
+
+    /**
+     * Returns the characters of a team, as listed in "characters-{team}.json" on the classpath.
+     *
+     * @param team the team name (case-insensitive).
+     * @return the team's roster.
+     */
+    public List<CharacterIdentifier> getRoster(String team) {
+        return rosters.computeIfAbsent(team.toLowerCase(), key -> loadCharacterIdentifiers("characters-" + key + ".json"));
+    }
+
+    /**
+     * @return the regions of the characters on all bundled rosters.
+     */
+    public Set<Region> regions() {
+        Set<Region> regions = EnumSet.noneOf(Region.class);
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath*:characters-*.json")) {
+                String fileName = resource.getFilename();
+                String team = fileName.substring("characters-".length(), fileName.length() - ".json".length());
+                for (CharacterIdentifier id : getRoster(team)) {
+                    regions.add(id.getRegion());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list the rosters", e);
+        }
+        return regions;
+    }
+
+    /**
+     * @return true if "characters-{team}.json" exists, without reading it.
+     */
+    public boolean hasTeam(String team) {
+        String key = team.toLowerCase();
+        return rosters.containsKey(key) || new ClassPathResource("characters-" + key + ".json").exists();
+    }
+
+    /**
+     * Reads a JSON file from the resources (e.g., "characters-boble.json") and maps it to a list of CharacterIdentifier.
+     */
+    private List<CharacterIdentifier> loadCharacterIdentifiers(String jsonFilePath) {
+        try {
+            ClassPathResource resource = new ClassPathResource(jsonFilePath);
+            try (InputStream is = resource.getInputStream()) {
+                return List.copyOf(objectMapper.readValue(is, new TypeReference<List<CharacterIdentifier>>() {}));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read " + jsonFilePath, e);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.nl.wowapi.boble.service;
+
+import com.nl.wowapi.boble.config.CharacterKeyGenerator;
+import com.nl.wowapi.boble.model.CharacterIdentifier;
+import com.nl.wowapi.boble.model.CharacterOverviewDto;
+import com.nl.wowapi.boble.model.Region;
+import com.nl.wowapi.boble.model.UnresolvedCharacter;
+import com.nl.wowapi.boble.util.Deadline;
+import com.nl.wowapi.boble.util.RequestTrace;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Service
+public class TeamOverviewService {
+
+    private final RosterService rosterService;
+    private final CharacterOverviewService characterOverviewService;
+    private final NegativeResultCache negativeResultCache;
+    private final ClassIconService classIconService;
+    private final CharacterActivityTracker activityTracker;
+    private final ApplicationEventPublisher eventPublisher;
+    // One pool per region, so characters waiting on one region's request budget don't hold up the others.
+    // Created on the region's first rebuild; most deployments only ever have EU rosters.
+    private final Map<Region, ExecutorService> executors = new ConcurrentHashMap<>();
+    private final int fetchThreads;
+
+    // How long a built team overview (and its indexes) is reused before it is rebuilt from the caches.
+    @Value("${overview.snapshot-ttl-seconds:60}")
+    private long snapshotTtlSeconds;
+
+    // How long a request waits for a rebuild when it doesn't pass ?deadlineMs, and the most it may ask for.
+    @Value("${overview.default-deadline-ms:3000}")
+    private long defaultDeadlineMs;
+
+    @Value("${overview.max-deadline-ms:30000}")
+    private long maxDeadlineMs;
+
+    // Extra time the upstream calls of a rebuild get after the request deadline, to finish in the background.
+    @Value("${overview.background-grace-ms:15000}")
+    private long backgroundGraceMs;
+
+    private final Map<String, TeamSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, Build> builds = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    public TeamOverviewService(RosterService rosterService, CharacterOverviewService characterOverviewService,
+                               NegativeResultCache negativeResultCache, ClassIconService classIconService,
+                               CharacterActivityTracker activityTracker, ApplicationEventPublisher eventPublisher,
+                               @Value("${overview.fetch-threads:8}") int fetchThreads) {
+        this.rosterService = rosterService;
+        this.characterOverviewService = characterOverviewService;
+        this.negativeResultCache = negativeResultCache;
+        this.classIconService = classIconService;
+        this.activityTracker = activityTracker;
+        this.eventPublisher = eventPublisher;
+        this.fetchThreads = fetchThreads;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executors.values().forEach(ExecutorService::shutdownNow);
+    }
+
+    /**
+     * Returns the current overview of a team, rebuilding it if the last one is too old.
+     * Characters are loaded in parallel, and concurrent requests for the same team share a single rebuild.
+     * If the rebuild isn't done within the deadline, the rows loaded so far are returned together with the
+     * last known (or placeholder) rows of the others, marked incomplete, and the rebuild carries on in the
+     * background for the next request.
+     *
+     * @param deadlineMs how long to wait for a rebuild, or null for the server default.
+     */
+    public TeamSnapshot getSnapshot(String team, Long deadlineMs) {
+        String key = team.toLowerCase(Locale.ROOT);
+        TeamSnapshot snapshot = snapshots.get(key);
+        if (isFresh(snapshot)) {
+            return snapshot;
+        }
+
+        Instant deadline = Instant.now().plusMillis(Math.min(deadlineMs != null ? deadlineMs : defaultDeadlineMs, maxDeadlineMs));
+        Build build;
+        synchronized (lock(key)) {
+            snapshot = snapshots.get(key);
+            if (isFresh(snapshot)) {
+                return snapshot;
+            }
+            build = builds.get(key);
+            if (build == null) {
+                build = startBuild(team, key, deadline.plusMillis(backgroundGraceMs));
+            } else {
+                // The upstream spans of this rebuild go to the trace that started it. That trace belongs to
+                // another client, so its id only goes to the log, never into this response's Server-Timing.
+                RequestTrace.note(build.traceId != null ? "joined rebuild" : "joined background rebuild");
+                if (build.traceId != null) {
+                    RequestTrace.logNote("joined rebuild of trace " + build.traceId);
+                }
+            }
+        }
+
+        try {
+            long waitMs = Math.max(0, Duration.between(Instant.now(), deadline).toMillis());
+            return build.snapshot.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return partialSnapshot(build, snapshot);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return partialSnapshot(build, snapshot);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to build overview for team " + team, e.getCause());
+        }
+    }
+
+    /**
+     * Counts a user looking at the team toward the request rate of each of its characters, which shortens
+     * their cache lifetimes. Only called for user requests: rebuilds, such as the stream's scheduled refreshes,
+     * say nothing about demand.
+     */
+    public void recordView(String team) {
+        for (CharacterIdentifier id : rosterService.getRoster(team)) {
+            activityTracker.recordRequest(id.getRegion(), id.getRealm(), id.getName());
+        }
+    }
+
+    private boolean isFresh(TeamSnapshot snapshot) {
+        return snapshot != null && snapshot.isComplete()
+                && snapshot.getCreatedAt().plus(Duration.ofSeconds(snapshotTtlSeconds)).isAfter(Instant.now());
+    }
+
+    // Called with the team lock held.
+    private Build startBuild(String team, String key, Instant upstreamDeadline) {
+        List<CharacterIdentifier> roster = rosterService.getRoster(team);
+        List<CompletableFuture<CharacterOverviewDto>> rows = new ArrayList<>();
+        // Upstream spans of the rebuild are recorded on the trace of the request that started it.
+        RequestTrace trace = RequestTrace.current();
+        for (CharacterIdentifier id : roster) {
+            rows.add(CompletableFuture.supplyAsync(() -> RequestTrace.call(trace,
+                    () -> Deadline.call(upstreamDeadline, () -> loadRow(id))), executor(id.getRegion())));
+        }
+        Build build = new Build(roster, rows, new CompletableFuture<>(), trace != null ? trace.getTraceId() : null);
+        builds.put(key, build);
+        CompletableFuture.allOf(rows.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> new TeamSnapshot(
+                        rows.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList(), Instant.now()))
+                .whenComplete((snapshot, e) -> {
+                    boolean current;
+                    synchronized (lock(key)) {
+                        // A build invalidated while running may hold rows from before the eviction; don't keep it.
+                        current = builds.remove(key, build);
+                        if (current && snapshot != null) {
+                            snapshots.put(key, snapshot);
+                        }
+                    }
+                    if (current && snapshot != null) {
+                        eventPublisher.publishEvent(new TeamSnapshotRebuiltEvent(key, snapshot));
+                    }
+                    if (e != null) {
+                        build.snapshot.completeExceptionally(e);
+                    } else {
+                        build.snapshot.complete(snapshot);
+                    }
+                });
+        return build;
+    }
+
+    /**
+     * Drops the team's overview, and any rebuild in progress, so the next request rebuilds it from the caches.
+     */
+    public void invalidate(String team) {
+        String key = team.toLowerCase(Locale.ROOT);
+        synchronized (lock(key)) {
+            snapshots.remove(key);
+            builds.remove(key);
+        }
+    }
+
+    /**
+     * Drops the overview of every team that has the character on its roster.
+     */
+    public void invalidateCharacter(Region region, String realm, String characterName) {
+        String characterKey = CharacterKeyGenerator.key(region, realm, characterName);
+        for (String team : locks.keySet()) {
+            for (CharacterIdentifier id : rosterService.getRoster(team)) {
+                if (characterKey.equals(CharacterKeyGenerator.key(id.getRegion(), id.getRealm(), id.getName()))) {
+                    invalidate(team);
+                    break;
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        for (String team : locks.keySet()) {
+            invalidate(team);
+        }
+    }
+
+    private ExecutorService executor(Region region) {
+        return executors.computeIfAbsent(region, key -> Executors.newFixedThreadPool(fetchThreads));
+    }
+
+    private Object lock(String key) {
+        return locks.computeIfAbsent(key, k -> new Object());
+    }
+
+    // Failed characters are left out of the overview, as before; see getUnresolved.
+    private CharacterOverviewDto loadRow(CharacterIdentifier id) {
+        try {
+            return characterOverviewService.getCharacterOverview(id.getRealm(), id.getName(), id.getRegion());
+        } catch (Exception e) {
+            logFailure(id, e);
+            return null;
+        }
+    }
+
+    private TeamSnapshot partialSnapshot(Build build, TeamSnapshot previous) {
+        Map<String, CharacterOverviewDto> previousRows = new HashMap<>();
+        if (previous != null) {
+            for (CharacterOverviewDto row : previous.getRows()) {
+                previousRows.put(CharacterKeyGenerator.key(row.getRegion(), row.getRealm(), row.getName()), row);
+            }
+        }
+        List<CharacterOverviewDto> rows = new ArrayList<>();
+        for (int i = 0; i < build.roster.size(); i++) {
+            CompletableFuture<CharacterOverviewDto> future = build.rows.get(i);
+            if (future.isDone()) {
+                CharacterOverviewDto row = future.join();
+                if (row != null) {
+                    rows.add(row);
+                }
+                continue;
+            }
+            CharacterIdentifier id = build.roster.get(i);
+            rows.add(incompleteRow(id, previousRows.get(CharacterKeyGenerator.key(id.getRegion(), id.getRealm(), id.getName()))));
+        }
+        return new TeamSnapshot(rows, Instant.now(), false);
+    }
+
+    // A copy of the last known row, or just the roster name and realm if there is none.
+    private CharacterOverviewDto incompleteRow(CharacterIdentifier id, CharacterOverviewDto last) {
+        CharacterOverviewDto row;
+        if (last != null) {
+            row = new CharacterOverviewDto(last.getName(), last.getClassName(), last.getRealm(),
+                    last.getEquippedItemLevel(), last.getClassIcon(), last.getMythicRating(),
+                    last.getMythicRatingColor(), last.getActiveSpec(), last.getRole(), last.getBestPerfAvgScore());
+            row.setUnadjustedMythicRating(last.getUnadjustedMythicRating());
+            row.setUnadjustedBestPerfAvgScore(last.getUnadjustedBestPerfAvgScore());
+        } else {
+            row = new CharacterOverviewDto();
+            row.setName(id.getName());
+            row.setRealm(id.getRealm());
+            row.setClassIcon(classIconService.getIconUrl(null));
+            row.setMythicRatingColor("rgba(255,255,255,1)");
+        }
+        row.setRegion(id.getRegion());
+        row.setIncomplete(true);
+        return row;
+    }
+
+    /**
+     * Returns the roster entries left out of the overview because their profile lookup failed recently.
+     */
+    public List<UnresolvedCharacter> getUnresolved(String team) {
+        return negativeResultCache.getUnresolved(rosterService.getRoster(team));
+    }
+
+    // Known upstream failures are expected (renamed or deleted characters) and get one line, not a stack trace.
+    private void logFailure(CharacterIdentifier id, Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnresolvedCharacterException unresolved) {
+                UnresolvedCharacter u = unresolved.getUnresolved();
+                System.out.println("Skipping " + id.getName() + "-" + id.getRealm() + ": " + u.errorClass()
+                        + " until " + u.retryAfter());
+                return;
+            }
+            if (cause instanceof RestClientResponseException response) {
+                System.err.println("Failed to load " + id.getName() + "-" + id.getRealm() + ": "
+                        + response.getStatusCode());
+                return;
+            }
+        }
+        e.printStackTrace();
+    }
+
+    // An in-flight rebuild: one future per roster entry, in roster order, plus the resulting snapshot
+    // and the trace of the request that started it (null if untraced).
+    private record Build(List<CharacterIdentifier> roster,
+                         List<CompletableFuture<CharacterOverviewDto>> rows,
+                         CompletableFuture<TeamSnapshot> snapshot,
+                         String traceId) {
+    }
+}
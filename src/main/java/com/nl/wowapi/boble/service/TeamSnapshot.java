@@ -0,0 +1,122 @@
+package com.nl.wowapi.boble.service;
+
+import com.nl.wowapi.boble.model.CharacterOverviewDto;
+import com.nl.wowapi.boble.model.OverviewPage;
+import com.nl.wowapi.boble.model.OverviewQuery;
+import com.nl.wowapi.boble.model.OverviewSortField;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable team overview with the indexes needed to answer sorted, filtered and paged queries
+ * without sorting per request: one precomputed row order per sort field and one bitset of matching
+ * rows per role, class and realm value.
+ */
+public final class TeamSnapshot {
+
+    private final List<CharacterOverviewDto> rows;
+    private final Instant createdAt;
+    private final boolean complete;
+    private final Map<OverviewSortField, int[]> ascendingOrders = new EnumMap<>(OverviewSortField.class);
+    private final Map<String, BitSet> byRole;
+    private final Map<String, BitSet> byClassName;
+    private final Map<String, BitSet> byRealm;
+
+    public TeamSnapshot(List<CharacterOverviewDto> rows, Instant createdAt) {
+        this(rows, createdAt, true);
+    }
+
+    public TeamSnapshot(List<CharacterOverviewDto> rows, Instant createdAt, boolean complete) {
+        this.rows = List.copyOf(rows);
+        this.createdAt = createdAt;
+        this.complete = complete;
+        for (OverviewSortField field : OverviewSortField.values()) {
+            ascendingOrders.put(field, IntStream.range(0, this.rows.size())
+                    .boxed()
+                    .sorted((a, b) -> field.comparator().compare(this.rows.get(a), this.rows.get(b)))
+                    .mapToInt(Integer::intValue)
+                    .toArray());
+        }
+        this.byRole = index(CharacterOverviewDto::getRole);
+        this.byClassName = index(CharacterOverviewDto::getClassName);
+        this.byRealm = index(CharacterOverviewDto::getRealm);
+    }
+
+    public List<CharacterOverviewDto> getRows() {
+        return rows;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * False if some rows are stale or placeholders because they weren't loaded before the deadline.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public OverviewPage query(OverviewQuery query, OverviewSortField sortField) {
+        BitSet matches = new BitSet(rows.size());
+        matches.set(0, rows.size());
+        filter(matches, byRole, query.role());
+        filter(matches, byClassName, query.className());
+        filter(matches, byRealm, query.realm());
+
+        int total = matches.cardinality();
+        int size = query.size() != null ? query.size() : Math.max(total, 1);
+        long skip = (long) (query.page() != null ? query.page() : 0) * size;
+
+        List<CharacterOverviewDto> page = new ArrayList<>(Math.min(size, total));
+        int[] order = sortField != null ? ascendingOrders.get(sortField) : null;
+        boolean descending = sortField != null && query.descending();
+        int seen = 0;
+        for (int i = 0; i < rows.size() && page.size() < size; i++) {
+            int row = order == null ? i : order[descending ? rows.size() - 1 - i : i];
+            if (matches.get(row) && seen++ >= skip) {
+                page.add(rows.get(row));
+            }
+        }
+        return new OverviewPage(page, total);
+    }
+
+    private Map<String, BitSet> index(Function<CharacterOverviewDto, String> attribute) {
+        Map<String, BitSet> index = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            String value = attribute.apply(rows.get(i));
+            if (value != null) {
+                index.computeIfAbsent(normalize(value), key -> new BitSet(rows.size())).set(i);
+            }
+        }
+        return index;
+    }
+
+    // Keeps only the rows matching at least one of the values; no values means no filter.
+    private static void filter(BitSet matches, Map<String, BitSet> index, List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        BitSet any = new BitSet();
+        for (String value : values) {
+            BitSet rows = index.get(normalize(value));
+            if (rows != null) {
+                any.or(rows);
+            }
+        }
+        matches.and(any);
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,9 @@
+package com.nl.wowapi.boble.service;
+
+/**
+ * Published when a complete team overview has been rebuilt.
+ *
+ * @param team the team key, lowercase.
+ */
+public record TeamSnapshotRebuiltEvent(String team, TeamSnapshot snapshot) {
+}
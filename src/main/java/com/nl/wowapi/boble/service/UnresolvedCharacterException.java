@@ -0,0 +1,21 @@
+package com.nl.wowapi.boble.service;
+
+import com.nl.wowapi.boble.model.UnresolvedCharacter;
+
+/**
+ * Thrown instead of calling upstream while a previous failed lookup of the character is still remembered.
+ */
+public class UnresolvedCharacterException extends RuntimeException {
+
+    private final UnresolvedCharacter unresolved;
+
+    public UnresolvedCharacterException(UnresolvedCharacter unresolved) {
+        super(unresolved.errorClass() + " (" + unresolved.status() + ") looking up " + unresolved.resource()
+                + " of " + unresolved.name() + "-" + unresolved.realm() + ", retrying after " + unresolved.retryAfter());
+        this.unresolved = unresolved;
+    }
+
+    public UnresolvedCharacter getUnresolved() {
+        return unresolved;
+    }
+}
@@ -2,7 +2,12 @@ package com.nl.wowapi.boble.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nl.wowapi.boble.model.RaidPerformance;
+import com.nl.wowapi.boble.model.Region;
 import com.nl.wowapi.boble.model.ZoneRankings;
+import com.nl.wowapi.boble.util.CharacterNames;
+import com.nl.wowapi.boble.util.RequestTrace;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 
@@ -21,18 +26,21 @@ public class WarcraftLogsClient {
     private final ObjectMapper objectMapper;
     private final WarcraftLogsTokenService tokenService;
 
-    public WarcraftLogsClient(WarcraftLogsTokenService tokenService) {
-        this.restTemplate = new RestTemplate();
+    public WarcraftLogsClient(RestTemplate restTemplate, WarcraftLogsTokenService tokenService) {
+        this.restTemplate = restTemplate;
         this.objectMapper = new ObjectMapper();
         this.tokenService = tokenService;
     }
 
-    /**
-     * Normalizes a server slug by trimming, lowercasing and replacing spaces with hyphens.
-     */
-    private String normalizeServerSlug(String serverSlug) {
-        return serverSlug.trim().toLowerCase().replace(" ", "-");
-    }
+    // Names and realms are passed as variables, so quotes or non-ASCII letters can't break the query.
+    private static final String ZONE_RANKINGS_QUERY =
+            "query CharacterZoneRanking($name: String!, $serverSlug: String!, $serverRegion: String!) { " +
+            "characterData { " +
+            "  character(name: $name, serverSlug: $serverSlug, serverRegion: $serverRegion) { " +
+            "    zoneRankings(zoneID: 42) " +
+            "  } " +
+            "} " +
+            "}";
 
     /**
      * Executes a GraphQL query to retrieve zoneRankings for a character,
@@ -45,20 +53,17 @@ public class WarcraftLogsClient {
      * @throws Exception if mapping fails.
      */
     public ZoneRankings getZoneRankings(String characterName, String serverSlug, String region) throws Exception {
-        // Normalize the server slug (e.g. "tarren mill" becomes "tarren-mill")
-        String normalizedSlug = normalizeServerSlug(serverSlug);
-
-        // Build the GraphQL query using the normalized server slug.
-        String query = "query CharacterZoneRanking { " +
-                "characterData { " +
-                "  character(name: \"" + characterName + "\", serverSlug: \"" + normalizedSlug + "\", serverRegion: \"" + region + "\") { " +
-                "    zoneRankings(zoneID: 42) " +
-                "  } " +
-                "} " +
-                "}";
+        // Normalize the server slug (e.g. "Tarren Mill" becomes "tarren-mill")
+        String normalizedSlug = CharacterNames.realmSlug(serverSlug);
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", CharacterNames.nameSlug(characterName));
+        variables.put("serverSlug", normalizedSlug);
+        variables.put("serverRegion", region);
 
         Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("query", query);
+        requestBody.put("query", ZONE_RANKINGS_QUERY);
+        requestBody.put("variables", variables);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
@@ -68,7 +73,7 @@ public class WarcraftLogsClient {
         HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(requestBody, headers);
 
         // Print the outgoing query for debugging.
-        System.out.println("Sending GraphQL query for character " + characterName + ": " + query);
+        System.out.println("Sending GraphQL query for character " + characterName + ": " + variables);
 
         ResponseEntity<JsonNode> response = restTemplate.exchange(apiUrl, HttpMethod.POST, requestEntity, JsonNode.class);
 
@@ -92,14 +97,33 @@ public class WarcraftLogsClient {
         System.out.println("Raw zoneRankings JSON for character " + characterName + ": " + zoneRankingsNode);
 
         ZoneRankings zoneRankings;
-        if (zoneRankingsNode.isTextual()) {
-            zoneRankings = objectMapper.readValue(zoneRankingsNode.asText(), ZoneRankings.class);
-        } else {
-            zoneRankings = objectMapper.treeToValue(zoneRankingsNode, ZoneRankings.class);
+        try (RequestTrace.Span span = RequestTrace.start("parse")) {
+            if (zoneRankingsNode.isTextual()) {
+                zoneRankings = objectMapper.readValue(zoneRankingsNode.asText(), ZoneRankings.class);
+            } else {
+                zoneRankings = objectMapper.treeToValue(zoneRankingsNode, ZoneRankings.class);
+            }
         }
         return zoneRankings;
     }
 
+    /**
+     * The zone rankings of a character reduced to what the overview shows. Cached per region like the
+     * Blizzard profiles, so with a shared tier every instance reuses one Warcraft Logs lookup.
+     *
+     * @param region        the character's region.
+     * @param realm         the realm name or slug.
+     * @param characterName the character's name.
+     * @return the character's raid performance.
+     * @throws Exception if the query or mapping fails.
+     */
+    @Cacheable(value = "zoneRankings", keyGenerator = "characterKeyGenerator", cacheResolver = "regionCacheResolver",
+            sync = true)
+    public RaidPerformance getRaidPerformance(Region region, String realm, String characterName) throws Exception {
+        RequestTrace.attribute("cache", "miss");
+        return new RaidPerformance(getZoneRankings(characterName, realm, region.slug()).getBestPerformanceAverage());
+    }
+
     /**
      * Convenience method to get the best performance average.
      *
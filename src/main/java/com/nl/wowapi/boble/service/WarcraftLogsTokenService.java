@@ -2,6 +2,7 @@ package com.nl.wowapi.boble.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nl.wowapi.boble.util.RequestTrace;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -26,10 +27,11 @@ public class WarcraftLogsTokenService {
     private final ObjectMapper objectMapper;
 
     // In a real app, you’d also cache the expiry time.
-    private String token;
+    private volatile String token;
 
-    public WarcraftLogsTokenService() {
-        this.restTemplate = new RestTemplate();
+    // The pooled upstream client, so the token call is bounded by the caller's Deadline like the queries.
+    public WarcraftLogsTokenService(RestTemplate upstreamRestTemplate) {
+        this.restTemplate = upstreamRestTemplate;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -39,9 +41,19 @@ public class WarcraftLogsTokenService {
      * @return the access token as a String.
      */
     public String getAccessToken() {
-        if (token != null) {
+        String current = token;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (token == null) {
+                token = fetchAccessToken();
+            }
             return token;
         }
+    }
+
+    private String fetchAccessToken() {
 
         MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
         formData.add("grant_type", "client_credentials");
@@ -53,8 +65,9 @@ public class WarcraftLogsTokenService {
         headers.set("Authorization", "Basic " + encodedAuth);
 
         HttpEntity<MultiValueMap<String, String>> requestEntity = new HttpEntity<>(formData, headers);
-        ResponseEntity<JsonNode> response = restTemplate.exchange(tokenUrl, HttpMethod.POST, requestEntity, JsonNode.class);
-        token = response.getBody().path("access_token").asText();
-        return token;
+        try (RequestTrace.Span span = RequestTrace.start("wcl-token")) {
+            ResponseEntity<JsonNode> response = restTemplate.exchange(tokenUrl, HttpMethod.POST, requestEntity, JsonNode.class);
+            return response.getBody().path("access_token").asText();
+        }
     }
 }
@@ -0,0 +1,76 @@
+package com.nl.wowapi.boble.util;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes the top mipmap of a palettized BLP1 texture (the format of the bundled class icons) into an ARGB image.
+ * <p>
+ * Layout: "BLP1", compression, alpha bits, width, height, picture type, has-mipmaps (all little-endian uint32),
+ * 16 mipmap offsets, 16 mipmap sizes and, for palettized images, a 256 entry BGRA palette. A mipmap holds one
+ * palette index per pixel followed by the alpha channel packed at 1, 4 or 8 bits per pixel.
+ */
+public final class BlpDecoder {
+
+    private static final int MAGIC_BLP1 = 0x31504C42; // "BLP1" read little-endian
+    private static final int COMPRESSION_PALETTE = 1;
+    private static final int PALETTE_OFFSET = 156;
+
+    private BlpDecoder() {
+    }
+
+    public static BufferedImage decode(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        if (data.length < PALETTE_OFFSET || buffer.getInt(0) != MAGIC_BLP1) {
+            throw new IllegalArgumentException("Not a BLP1 file");
+        }
+        int compression = buffer.getInt(4);
+        int alphaBits = buffer.getInt(8);
+        int width = buffer.getInt(12);
+        int height = buffer.getInt(16);
+        int mipOffset = buffer.getInt(28);
+        int mipSize = buffer.getInt(28 + 16 * 4);
+
+        if (compression != COMPRESSION_PALETTE) {
+            throw new IllegalArgumentException("Unsupported BLP compression " + compression + ", only palettized images are supported");
+        }
+        if (alphaBits != 0 && alphaBits != 1 && alphaBits != 4 && alphaBits != 8) {
+            throw new IllegalArgumentException("Unsupported BLP alpha depth " + alphaBits);
+        }
+        int pixels = width * height;
+        int alphaBytes = (pixels * alphaBits + 7) / 8;
+        if (width <= 0 || height <= 0 || mipSize < pixels + alphaBytes || mipOffset + pixels + alphaBytes > data.length) {
+            throw new IllegalArgumentException("Truncated BLP file");
+        }
+
+        int[] palette = new int[256];
+        for (int i = 0; i < 256; i++) {
+            // Stored as BGRA; the palette alpha is unused, transparency comes from the alpha channel.
+            palette[i] = buffer.getInt(PALETTE_OFFSET + i * 4) & 0x00FFFFFF;
+        }
+
+        int[] argb = new int[pixels];
+        int alphaStart = mipOffset + pixels;
+        for (int i = 0; i < pixels; i++) {
+            int rgb = palette[data[mipOffset + i] & 0xFF];
+            argb[i] = (alpha(data, alphaStart, alphaBits, i) << 24) | rgb;
+        }
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, argb, 0, width);
+        return image;
+    }
+
+    private static int alpha(byte[] data, int start, int alphaBits, int index) {
+        return switch (alphaBits) {
+            case 8 -> data[start + index] & 0xFF;
+            case 4 -> {
+                int nibble = (data[start + index / 2] >> ((index & 1) * 4)) & 0x0F;
+                yield nibble * 17;
+            }
+            case 1 -> ((data[start + index / 8] >> (index & 7)) & 1) * 255;
+            default -> 255;
+        };
+    }
+}
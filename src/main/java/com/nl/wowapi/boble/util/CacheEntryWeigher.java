@@ -0,0 +1,36 @@
+package com.nl.wowapi.boble.util;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.nl.wowapi.boble.model.CharacterProfile;
+import com.nl.wowapi.boble.model.MythicProfile;
+import com.nl.wowapi.boble.model.RaidPerformance;
+
+/**
+ * Estimates the heap used by a cache entry in bytes, so caches can be bounded by memory instead of entry count.
+ * Strings are counted at two bytes per char, which is an upper bound regardless of compact strings.
+ * The interned class, spec and realm names of a profile are shared by all entries and not counted.
+ */
+public class CacheEntryWeigher implements Weigher<Object, Object> {
+
+    // Rough per-entry overhead of the cache node plus object headers.
+    private static final int ENTRY_OVERHEAD = 64;
+
+    @Override
+    public int weigh(Object key, Object value) {
+        long bytes = ENTRY_OVERHEAD + estimate(key) + estimate(value);
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private static long estimate(Object value) {
+        if (value instanceof String s) {
+            return 40 + 2L * s.length();
+        }
+        if (value instanceof CharacterProfile profile) {
+            return 48 + estimate(profile.name());
+        }
+        if (value instanceof MythicProfile || value instanceof RaidPerformance) {
+            return 24;
+        }
+        return 16;
+    }
+}
@@ -0,0 +1,35 @@
+package com.nl.wowapi.boble.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Turns roster and display names into the slugs used in Blizzard and Warcraft Logs URLs.
+ * Names are NFC normalized so "ø" typed as "o" + combining stroke still resolves, and lowercased
+ * without locale rules (so an "I" never becomes a dotless "ı"); non-ASCII characters are left for URL encoding.
+ */
+public final class CharacterNames {
+
+    private CharacterNames() {
+    }
+
+    /**
+     * "Tarren Mill" -> "tarren-mill", "Kel'Thuzad" -> "kelthuzad".
+     */
+    public static String realmSlug(String realm) {
+        return normalize(realm)
+                .replaceAll("['()]", "")
+                .replaceAll("\\s+", "-");
+    }
+
+    /**
+     * "Dødskake" -> "dødskake".
+     */
+    public static String nameSlug(String characterName) {
+        return normalize(characterName);
+    }
+
+    private static String normalize(String value) {
+        return Normalizer.normalize(value.trim(), Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+    }
+}
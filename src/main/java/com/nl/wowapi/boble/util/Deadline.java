@@ -0,0 +1,47 @@
+package com.nl.wowapi.boble.util;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/**
+ * The point in time by which the work on the current thread should be done. Upstream HTTP calls
+ * shorten their timeouts to the time remaining, so one slow call can't outlast the request it serves.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Instant> CURRENT = new ThreadLocal<>();
+
+    private Deadline() {
+    }
+
+    /**
+     * Runs a task with the given deadline in scope on this thread.
+     */
+    public static <T> T call(Instant deadline, Supplier<T> task) {
+        Instant previous = CURRENT.get();
+        CURRENT.set(deadline);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * @return the time left until the deadline (negative once passed), or null if no deadline is in scope.
+     */
+    public static Duration remaining() {
+        Instant deadline = CURRENT.get();
+        return deadline == null ? null : Duration.between(Instant.now(), deadline);
+    }
+
+    public static boolean expired() {
+        Duration remaining = remaining();
+        return remaining != null && (remaining.isNegative() || remaining.isZero());
+    }
+}
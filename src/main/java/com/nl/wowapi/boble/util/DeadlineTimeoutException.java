@@ -0,0 +1,28 @@
+package com.nl.wowapi.boble.util;
+
+import java.io.InterruptedIOException;
+
+/**
+ * An upstream call timed out after its timeout had been cut short to fit the caller's {@link Deadline}.
+ * Unlike an ordinary timeout it says nothing about the upstream service, so it must not be remembered as
+ * an upstream failure.
+ */
+public class DeadlineTimeoutException extends InterruptedIOException {
+
+    public DeadlineTimeoutException(InterruptedIOException cause) {
+        super("Timed out at the request deadline: " + cause.getMessage());
+        initCause(cause);
+    }
+
+    /**
+     * @return true if the exception or one of its causes is a timeout caused by the deadline.
+     */
+    public static boolean isCauseOf(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeadlineTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
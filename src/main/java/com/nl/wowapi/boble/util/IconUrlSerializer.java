@@ -0,0 +1,64 @@
+package com.nl.wowapi.boble.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Writes root-relative icon URLs ("/icons/mage.png?v=...") as absolute URLs on the host of the response being
+ * written. Overview rows are shared between requests, so they only hold the path: a host taken from one
+ * request's (client controlled) Host header must never end up in another user's response.
+ * <p>
+ * Responses written on other threads, like streamed events, get the host of their own request through
+ * {@link #withBaseUrl}.
+ */
+public class IconUrlSerializer extends JsonSerializer<String> {
+
+    private static final ThreadLocal<String> BASE_URL = new ThreadLocal<>();
+
+    @FunctionalInterface
+    public interface Write {
+        void run() throws IOException;
+    }
+
+    @Override
+    public void serialize(String value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeString(value.startsWith("/") ? baseUrl() + value : value);
+    }
+
+    /**
+     * @return the context URL of the request handled on this thread, or "" if there is none.
+     */
+    public static String requestBaseUrl() {
+        if (RequestContextHolder.getRequestAttributes() == null) {
+            return "";
+        }
+        return ServletUriComponentsBuilder.fromCurrentContextPath().toUriString();
+    }
+
+    /**
+     * Runs a write with icon URLs based on {@code baseUrl}, e.g. the {@link #requestBaseUrl()} of a subscriber.
+     */
+    public static void withBaseUrl(String baseUrl, Write write) throws IOException {
+        String previous = BASE_URL.get();
+        BASE_URL.set(baseUrl);
+        try {
+            write.run();
+        } finally {
+            if (previous == null) {
+                BASE_URL.remove();
+            } else {
+                BASE_URL.set(previous);
+            }
+        }
+    }
+
+    private static String baseUrl() {
+        String baseUrl = BASE_URL.get();
+        return baseUrl != null ? baseUrl : requestBaseUrl();
+    }
+}
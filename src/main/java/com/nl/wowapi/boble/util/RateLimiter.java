@@ -0,0 +1,45 @@
+package com.nl.wowapi.boble.util;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket: {@code permitsPerSecond} on average, with bursts of up to one second's worth of permits.
+ */
+public final class RateLimiter {
+
+    private final double permitsPerNano;
+    private final double maxPermits;
+    private double permits;
+    private long updatedNanos = System.nanoTime();
+
+    public RateLimiter(double permitsPerSecond) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.maxPermits = Math.max(1, permitsPerSecond);
+        this.permits = maxPermits;
+    }
+
+    /**
+     * Takes a permit, waiting for one if necessary.
+     *
+     * @return false, without taking a permit, if none would be available within {@code maxWait}.
+     */
+    public boolean tryAcquire(Duration maxWait) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            permits = Math.min(maxPermits, permits + (now - updatedNanos) * permitsPerNano);
+            updatedNanos = now;
+            waitNanos = permits >= 1 ? 0 : (long) ((1 - permits) / permitsPerNano);
+            if (waitNanos > maxWait.toNanos()) {
+                return false;
+            }
+            // Reserved now and waited for outside the lock; later callers queue up behind the debt.
+            permits -= 1;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,229 @@
+package com.nl.wowapi.boble.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Spans recorded while serving one HTTP request, on the request thread and on the worker threads it hands
+ * work to. Spans are named after what they wait for (e.g. "blizzard-profile", "wcl", "parse") and can carry
+ * attributes such as {@code cache=hit|miss}. Outside a traced request all calls are no-ops.
+ */
+public final class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Span> CURRENT_SPAN = new ThreadLocal<>();
+    private static final Span NOOP = new Span(null, null, null);
+
+    private final String traceId;
+    private final long startNanos = System.nanoTime();
+    private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+    private final Queue<String> notes = new ConcurrentLinkedQueue<>();
+    private final Queue<String> logNotes = new ConcurrentLinkedQueue<>();
+
+    public RequestTrace(String traceId) {
+        this.traceId = traceId != null ? traceId : UUID.randomUUID().toString().replace("-", "");
+    }
+
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds a new trace to the request thread; {@link #end()} unbinds it.
+     */
+    public static void begin(RequestTrace trace) {
+        CURRENT.set(trace);
+        CURRENT_SPAN.remove();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+        CURRENT_SPAN.remove();
+    }
+
+    /**
+     * Runs a task with the given trace in scope on this thread; a null trace runs it untraced.
+     */
+    public static <T> T call(RequestTrace trace, Supplier<T> task) {
+        RequestTrace previous = CURRENT.get();
+        Span previousSpan = CURRENT_SPAN.get();
+        set(trace);
+        CURRENT_SPAN.remove();
+        try {
+            return task.get();
+        } finally {
+            set(previous);
+            if (previousSpan == null) {
+                CURRENT_SPAN.remove();
+            } else {
+                CURRENT_SPAN.set(previousSpan);
+            }
+        }
+    }
+
+    /**
+     * Starts a span on the current thread; close it (try-with-resources) to record it.
+     */
+    public static Span start(String name) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null) {
+            return NOOP;
+        }
+        Span span = new Span(trace, name, CURRENT_SPAN.get());
+        CURRENT_SPAN.set(span);
+        return span;
+    }
+
+    /**
+     * Sets an attribute on the innermost open span of this thread, e.g. from code that only runs on a cache miss.
+     */
+    public static void attribute(String key, String value) {
+        Span span = CURRENT_SPAN.get();
+        if (span != null) {
+            span.attribute(key, value);
+        }
+    }
+
+    /**
+     * Adds a remark to the trace's "total" metric, e.g. why time shows up there without any spans.
+     */
+    public static void note(String note) {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.notes.add(note);
+        }
+    }
+
+    /**
+     * Adds a remark to the slow-request log only, for details the client must not see, such as the trace id
+     * of another client's request.
+     */
+    public static void logNote(String note) {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.logNotes.add(note);
+        }
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Self time (duration minus nested spans, e.g. "blizzard-profile" without its "rate-limit" wait and "parse")
+     * and call count per span name, plus cache hit/miss counts, as a Server-Timing header value.
+     * Spans on parallel workers overlap, so a metric can add up to more than the request's wall time.
+     */
+    public String serverTiming() {
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        Map<String, Map<String, Integer>> cacheCounts = new LinkedHashMap<>();
+        for (Span span : spans) {
+            long[] total = totals.computeIfAbsent(span.name, key -> new long[2]);
+            total[0] += span.durationNanos - span.childNanos;
+            total[1]++;
+            String cache = span.attributes.get("cache");
+            if (cache != null) {
+                cacheCounts.computeIfAbsent(span.name, key -> new LinkedHashMap<>()).merge(cache, 1, Integer::sum);
+            }
+        }
+        List<String> metrics = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            StringBuilder desc = new StringBuilder().append(entry.getValue()[1]).append(" calls");
+            Map<String, Integer> counts = cacheCounts.get(entry.getKey());
+            if (counts != null) {
+                counts.forEach((outcome, count) -> desc.append(", ").append(count).append(' ').append(outcome));
+            }
+            metrics.add(entry.getKey() + ";dur=" + millis(entry.getValue()[0]) + ";desc=\"" + desc + "\"");
+        }
+        StringBuilder desc = new StringBuilder("trace ").append(traceId);
+        notes.forEach(note -> desc.append(", ").append(note));
+        metrics.add("total;dur=" + millis(elapsedNanos()) + ";desc=\"" + desc + "\"");
+        return String.join(", ", metrics);
+    }
+
+    public List<String> getLogNotes() {
+        return List.copyOf(logNotes);
+    }
+
+    /**
+     * One line per span, in start order: offset from the request start, duration, name and attributes.
+     */
+    public List<String> describeSpans() {
+        List<Span> sorted = new ArrayList<>(spans);
+        sorted.sort((a, b) -> Long.compare(a.startNanos, b.startNanos));
+        List<String> lines = new ArrayList<>();
+        for (Span span : sorted) {
+            lines.add(String.format(Locale.ROOT, "  +%8s ms %8s ms  %s%s%s",
+                    millis(span.startNanos - startNanos), millis(span.durationNanos),
+                    span.parent != null ? "  " : "", span.name, span.attributes.isEmpty() ? "" : " " + span.attributes));
+        }
+        return lines;
+    }
+
+    private static void set(RequestTrace trace) {
+        if (trace == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(trace);
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+
+    public static final class Span implements AutoCloseable {
+
+        private final RequestTrace trace;
+        private final String name;
+        private final Span parent;
+        private final long startNanos = System.nanoTime();
+        private final Map<String, String> attributes = new LinkedHashMap<>();
+        private long durationNanos;
+        // Time spent in spans nested in this one on the same thread.
+        private long childNanos;
+
+        private Span(RequestTrace trace, String name, Span parent) {
+            this.trace = trace;
+            this.name = name;
+            this.parent = parent;
+        }
+
+        public Span attribute(String key, String value) {
+            if (trace != null) {
+                attributes.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (trace == null) {
+                return;
+            }
+            durationNanos = System.nanoTime() - startNanos;
+            if (parent != null) {
+                parent.childNanos += durationNanos;
+            }
+            trace.spans.add(this);
+            if (CURRENT_SPAN.get() == this) {
+                if (parent == null) {
+                    CURRENT_SPAN.remove();
+                } else {
+                    CURRENT_SPAN.set(parent);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.nl.wowapi.boble.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nl.wowapi.boble.model.CharacterProfile;
+import com.nl.wowapi.boble.model.RaidPerformance;
+import com.nl.wowapi.boble.model.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two caches sharing one {@link InMemorySharedCacheStore} stand in for two application instances sharing Redis.
+ */
+class TwoTierCacheTest {
+
+    private static final String CACHE = "characterProfiles-eu";
+    private static final String KEY = "eu_tarren-mill_moph";
+
+    private final CharacterProfile v1 = profile(610);
+    private final CharacterProfile v2 = profile(620);
+
+    private InMemorySharedCacheStore store;
+    private List<TwoTierCache> instances;
+    private TwoTierCache a;
+    private TwoTierCache b;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemorySharedCacheStore();
+        instances = new ArrayList<>();
+        // Dispatches invalidations the way CacheConfig does, to every instance.
+        store.subscribe(raw -> {
+            CacheInvalidationMessage message = CacheInvalidationMessage.parse(raw);
+            for (TwoTierCache cache : instances) {
+                if (cache.getName().equals(message.cacheName())) {
+                    cache.onInvalidation(message);
+                }
+            }
+        });
+        a = newInstance("a");
+        b = newInstance("b");
+    }
+
+    @Test
+    void missesInTheLocalTierReadThroughTheSharedTier() {
+        a.put(KEY, v1);
+
+        assertNull(local(b, KEY));
+        assertEquals(v1, b.get(KEY, CharacterProfile.class));
+        assertEquals(v1, local(b, KEY));
+    }
+
+    @Test
+    void raidPerformanceIsSharedLikeTheProfiles() {
+        a.put(KEY, new RaidPerformance(87.5));
+
+        assertEquals(new RaidPerformance(87.5), b.get(KEY, () -> new RaidPerformance(0)));
+    }
+
+    @Test
+    void putInvalidatesTheOtherInstances() {
+        a.put(KEY, v1);
+        b.get(KEY);
+
+        a.put(KEY, v2);
+
+        assertNull(local(b, KEY));
+        assertEquals(v2, b.get(KEY, CharacterProfile.class));
+    }
+
+    @Test
+    void evictRemovesTheEntryEverywhere() {
+        a.put(KEY, v1);
+        b.get(KEY);
+
+        a.evict(KEY);
+
+        assertNull(local(b, KEY));
+        assertNull(b.get(KEY));
+        assertNull(a.get(KEY));
+    }
+
+    @Test
+    void clearRemovesAllEntriesEverywhere() {
+        a.put(KEY, v1);
+        a.put("eu_draenor_other", v2);
+        b.get(KEY);
+
+        a.clear();
+
+        assertNull(local(b, KEY));
+        assertNull(b.get(KEY));
+        assertNull(b.get("eu_draenor_other"));
+    }
+
+    @Test
+    void instancesIgnoreTheirOwnInvalidations() {
+        a.put(KEY, v1);
+
+        // The store also delivers a's own message to a; acting on it would drop the value it just wrote.
+        assertEquals(v1, local(a, KEY));
+    }
+
+    @Test
+    void concurrentMissesOnSeveralInstancesLoadOnce() throws Exception {
+        List<TwoTierCache> caches = List.of(a, b, newInstance("c"), newInstance("d"));
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(caches.size());
+        try {
+            List<Future<CharacterProfile>> results = new ArrayList<>();
+            for (TwoTierCache cache : caches) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return cache.get(KEY, () -> {
+                        upstreamCalls.incrementAndGet();
+                        Thread.sleep(200);
+                        return v1;
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<CharacterProfile> result : results) {
+                assertEquals(v1, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void anotherInstanceTakesOverWhenTheLoadFails() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> failed = pool.submit(() -> a.get(KEY, () -> {
+                loading.countDown();
+                Thread.sleep(200);
+                throw new IllegalStateException("upstream down");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            // b waits for a's load, sees its lock released without a value and loads itself.
+            assertEquals(v2, b.get(KEY, () -> v2));
+            Exception e = assertThrows(Exception.class, () -> failed.get(5, TimeUnit.SECONDS));
+            assertEquals(Cache.ValueRetrievalException.class, e.getCause().getClass());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void aLoadThatOutlivesItsLockLeavesTheNextHoldersLockAlone() throws Exception {
+        TwoTierCache slow = newInstance("slow", Duration.ofMillis(100));
+        String lockKey = "test:" + CACHE + ":" + KEY + ":loading";
+        byte[] otherLock = "other".getBytes(StandardCharsets.UTF_8);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch taken = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<CharacterProfile> result = pool.submit(() -> slow.get(KEY, () -> {
+                loading.countDown();
+                taken.await(5, TimeUnit.SECONDS);
+                return v1;
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Thread.sleep(150);
+            // The slow load's lock has expired; another instance takes it.
+            assertTrue(store.putIfAbsent(lockKey, otherLock, Duration.ofSeconds(10)));
+            taken.countDown();
+
+            assertEquals(v1, result.get(5, TimeUnit.SECONDS));
+            assertArrayEquals(otherLock, store.get(lockKey));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private TwoTierCache newInstance(String instanceId) {
+        return newInstance(instanceId, Duration.ofSeconds(5));
+    }
+
+    private TwoTierCache newInstance(String instanceId, Duration loadLockTtl) {
+        TwoTierCache cache = new TwoTierCache(new CaffeineCache(CACHE, Caffeine.newBuilder().build()), store,
+                new CacheValueCodec(), (key, value) -> Duration.ofMinutes(10), instanceId, "test", loadLockTtl);
+        instances.add(cache);
+        return cache;
+    }
+
+    private static Object local(TwoTierCache cache, Object key) {
+        return ((com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache()).asMap().get(key);
+    }
+
+    private static CharacterProfile profile(int itemLevel) {
+        return new CharacterProfile("Moph", "Mage", "Tarren Mill", itemLevel, "Frost", Role.DPS, 0);
+    }
+}
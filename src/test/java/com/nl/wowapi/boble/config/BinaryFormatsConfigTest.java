@@ -0,0 +1,104 @@
+package com.nl.wowapi.boble.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nl.wowapi.boble.model.CharacterOverviewDto;
+import com.nl.wowapi.boble.service.TeamSnapshot;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryFormatsConfigTest {
+
+    private static final String[][] CLASSES = {
+            {"Mage", "Frost", "DPS"}, {"Priest", "Holy", "Healer"}, {"Warrior", "Protection", "Tank"},
+            {"Druid", "Restoration", "Healer"}, {"Death Knight", "Unholy", "DPS"}, {"Hunter", "Beast Mastery", "DPS"}};
+    private static final String[] REALMS = {"Draenor", "Tarren Mill", "Silvermoon"};
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper smile = new BinaryFormatsConfig().smileHttpMessageConverter().getObjectMapper();
+    private final ObjectMapper cbor = new BinaryFormatsConfig().cborHttpMessageConverter().getObjectMapper();
+
+    // A full 26-row team, the size of the largest roster.
+    private final TeamSnapshot snapshot = snapshot(26);
+
+    @Test
+    void compactFormatsLeaveOutTheDerivableLinks() throws IOException {
+        JsonNode jsonRow = json.readTree(json.writeValueAsBytes(snapshot.getRows())).get(0);
+        for (String link : List.of("blizzardUrl", "raiderIoUrl", "warcraftLogsUrl")) {
+            assertTrue(jsonRow.has(link), link);
+        }
+
+        for (ObjectMapper mapper : List.of(smile, cbor)) {
+            JsonNode row = mapper.readTree(mapper.writeValueAsBytes(snapshot.getRows())).get(0);
+            for (String link : List.of("blizzardUrl", "raiderIoUrl", "warcraftLogsUrl")) {
+                assertFalse(row.has(link), link);
+            }
+            assertEquals("member0", row.path("name").asText());
+            assertEquals("Draenor", row.path("realm").asText());
+            assertEquals(2500, row.path("mythicRating").asInt());
+        }
+    }
+
+    /**
+     * Serialization cost and payload size of one overview in each format, measured in process so the numbers
+     * are not buried in HTTP round trips. Prints the figures; only the sizes are asserted.
+     */
+    @Test
+    void measuresPayloadSizeAndSerializationTime() throws IOException {
+        int jsonSize = measure("json", json);
+        int smileSize = measure("smile", smile);
+        int cborSize = measure("cbor", cbor);
+
+        assertTrue(smileSize < jsonSize, "smile should be smaller than json");
+        assertTrue(cborSize < jsonSize, "cbor should be smaller than json");
+    }
+
+    private int measure(String label, ObjectMapper mapper) throws IOException {
+        List<CharacterOverviewDto> rows = snapshot.getRows();
+        for (int i = 0; i < 2_000; i++) {
+            mapper.writeValueAsBytes(rows);
+        }
+        long[] nanos = new long[200];
+        byte[] payload = null;
+        for (int i = 0; i < nanos.length; i++) {
+            long start = System.nanoTime();
+            payload = mapper.writeValueAsBytes(rows);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-6s %6d bytes  %6d gzipped  median %6.1f us%n",
+                label, payload.length, gzippedSize(payload), nanos[nanos.length / 2] / 1000.0);
+        return payload.length;
+    }
+
+    private static int gzippedSize(byte[] payload) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(payload);
+        }
+        return out.size();
+    }
+
+    private static TeamSnapshot snapshot(int size) {
+        List<CharacterOverviewDto> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            String[] spec = CLASSES[i % CLASSES.length];
+            rows.add(new CharacterOverviewDto("member" + i, spec[0], REALMS[i % REALMS.length], 630 + i % 10,
+                    "/icons/" + spec[0].toLowerCase().replace(" ", "") + ".png?v=1", 2500 + 10 * i,
+                    "rgba(255,128,0,1.00)", spec[1], spec[2], 80.0 + i / 2.0));
+        }
+        return new TeamSnapshot(rows, Instant.now());
+    }
+}
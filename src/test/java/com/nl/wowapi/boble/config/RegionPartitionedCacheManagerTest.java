@@ -0,0 +1,67 @@
+package com.nl.wowapi.boble.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nl.wowapi.boble.model.Region;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RegionPartitionedCacheManagerTest {
+
+    private static final long BUDGET = 1_000_000;
+    private static final long OVERFLOW = 10_000;
+
+    private RegionPartitionedCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new RegionPartitionedCacheManager(Map.of("characterProfiles", BUDGET),
+                EnumSet.of(Region.EU, Region.US), OVERFLOW,
+                (name, cacheName, maxWeightBytes) -> new CaffeineCache(name,
+                        Caffeine.newBuilder().maximumWeight(maxWeightBytes).weigher((key, value) -> 1).build()));
+        cacheManager.afterPropertiesSet();
+    }
+
+    @Test
+    void rosterRegionsSplitTheBudgetAndTheOverflowHasItsOwn() {
+        assertEquals(List.of("characterProfiles-eu", "characterProfiles-us", "characterProfiles-other"),
+                List.copyOf(cacheManager.getCacheNames()));
+        assertEquals(BUDGET / 2, maximum(cacheManager.getCache("characterProfiles-eu")));
+        assertEquals(BUDGET / 2, maximum(cacheManager.getCache("characterProfiles-us")));
+        assertEquals(OVERFLOW, maximum(cacheManager.getCache("characterProfiles-other")));
+    }
+
+    @Test
+    void otherRegionsShareTheOverflowWithoutTouchingTheRosterRegions() {
+        Cache eu = cacheManager.partition("characterProfiles", Region.EU);
+        eu.put("eu_draenor_moph", "profile");
+
+        Cache kr = cacheManager.partition("characterProfiles", Region.KR);
+        Cache tw = cacheManager.partition("characterProfiles", Region.TW);
+
+        assertSame(cacheManager.getCache("characterProfiles-other"), kr);
+        assertSame(kr, tw);
+        assertEquals(3, cacheManager.getCacheNames().size());
+        assertEquals(BUDGET / 2, maximum(eu));
+        assertEquals("profile", eu.get("eu_draenor_moph", String.class));
+    }
+
+    @Test
+    void unknownCachesAreNotCreated() {
+        assertNull(cacheManager.getCache("characterProfiles-kr"));
+        assertNull(cacheManager.partition("other", Region.EU));
+    }
+
+    private static long maximum(Cache cache) {
+        return ((CaffeineCache) cache).getNativeCache().policy().eviction().orElseThrow().getMaximum();
+    }
+}
@@ -0,0 +1,71 @@
+package com.nl.wowapi.boble.config;
+
+import com.nl.wowapi.boble.util.Deadline;
+import com.nl.wowapi.boble.util.DeadlineTimeoutException;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamHttpConfigTest {
+
+    private HttpServer server;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/slow";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void timeoutsShortenedToTheDeadlineAreMarked() {
+        RestTemplate restTemplate = restTemplate(10_000);
+
+        ResourceAccessException e = assertThrows(ResourceAccessException.class, () -> Deadline.call(
+                Instant.now().plusMillis(300), () -> restTemplate.getForEntity(url, String.class)));
+        assertTrue(DeadlineTimeoutException.isCauseOf(e));
+    }
+
+    @Test
+    void ordinaryTimeoutsAreNotMarked() {
+        RestTemplate restTemplate = restTemplate(300);
+
+        ResourceAccessException e = assertThrows(ResourceAccessException.class, () -> Deadline.call(
+                Instant.now().plusSeconds(10), () -> restTemplate.getForEntity(url, String.class)));
+        assertFalse(DeadlineTimeoutException.isCauseOf(e));
+    }
+
+    private static RestTemplate restTemplate(long readTimeoutMs) {
+        UpstreamHttpConfig config = new UpstreamHttpConfig();
+        ReflectionTestUtils.setField(config, "connectTimeoutMs", 1_000L);
+        ReflectionTestUtils.setField(config, "readTimeoutMs", readTimeoutMs);
+        return config.upstreamRestTemplate(4);
+    }
+}
@@ -0,0 +1,109 @@
+package com.nl.wowapi.boble.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nl.wowapi.boble.config.CharacterKeyGenerator;
+import com.nl.wowapi.boble.model.CharacterProfile;
+import com.nl.wowapi.boble.model.MythicProfile;
+import com.nl.wowapi.boble.model.Region;
+import com.nl.wowapi.boble.util.CacheEntryWeigher;
+import com.nl.wowapi.boble.util.CharacterNames;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlizzardApiServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CacheEntryWeigher weigher = new CacheEntryWeigher();
+
+    @Test
+    void characterUrisPercentEncodeNonAsciiNames() {
+        BlizzardApiService service = new BlizzardApiService(null, null, null);
+        ReflectionTestUtils.setField(service, "blizzardApiUrl", "https://{region}.api.blizzard.com");
+
+        assertEquals("https://eu.api.blizzard.com/profile/wow/character/draenor/d%C3%B8dskake"
+                        + "?namespace=profile-eu&locale=en_GB",
+                service.characterUri(Region.EU, "Draenor", "Dødskake").toString());
+        assertEquals("https://eu.api.blizzard.com/profile/wow/character/tarren-mill/%C3%A6rling/mythic-keystone-profile"
+                        + "?namespace=profile-eu&locale=en_GB",
+                service.characterUri(Region.EU, "Tarren Mill", "Ærling", "mythic-keystone-profile").toString());
+    }
+
+    @Test
+    void projectionsKeepWhatTheOverviewShows() throws IOException {
+        CharacterProfile profile = BlizzardApiService.toCharacterProfile(fixture("character-profile.json"));
+        MythicProfile mythic = BlizzardApiService.toMythicProfile(fixture("mythic-keystone-profile.json"));
+
+        assertEquals("Dødskake", profile.name());
+        assertEquals("Death Knight", profile.className());
+        assertEquals("Draenor", profile.realm());
+        assertEquals(639, profile.equippedItemLevel());
+        assertEquals("Frost", profile.activeSpec());
+        assertEquals(1745091362000L, profile.lastLoginTimestamp());
+        assertEquals(2541, mythic.rating());
+        assertEquals("rgba(255,128,0,1.00)", mythic.color());
+    }
+
+    /**
+     * Weighs the characterProfiles and mythicProfiles entries of every roster character, once as the raw
+     * documents cached before the projections and once as the projections, with the weigher the caches use.
+     * The documents are the fixtures with each character's name and realm filled in, written compactly as
+     * Blizzard sends them.
+     */
+    @Test
+    void projectionsOfEachRosterWeighAFractionOfTheRawDocuments() throws IOException {
+        JsonNode profileFixture = fixture("character-profile.json");
+        JsonNode mythicFixture = fixture("mythic-keystone-profile.json");
+
+        Resource[] rosters = new PathMatchingResourcePatternResolver().getResources("classpath*:characters-*.json");
+        assertTrue(rosters.length > 0);
+        for (Resource roster : rosters) {
+            long before = 0;
+            long after = 0;
+            try (InputStream in = roster.getInputStream()) {
+                for (JsonNode entry : objectMapper.readTree(in)) {
+                    String name = entry.path("name").asText();
+                    String realm = entry.path("realm").asText();
+                    String key = CharacterKeyGenerator.key(Region.fromSlug(entry.path("region").asText("eu")), realm, name);
+
+                    JsonNode profileJson = forCharacter(profileFixture, name, realm);
+                    JsonNode mythicJson = forCharacter(mythicFixture, name, realm);
+                    before += weigher.weigh(key, objectMapper.writeValueAsString(profileJson))
+                            + weigher.weigh(key, objectMapper.writeValueAsString(mythicJson));
+                    after += weigher.weigh(key, BlizzardApiService.toCharacterProfile(profileJson))
+                            + weigher.weigh(key, BlizzardApiService.toMythicProfile(mythicJson));
+                }
+            }
+            System.out.printf("%-28s raw documents %5d KB, projections %3d KB%n",
+                    roster.getFilename(), before / 1024, after / 1024);
+            assertTrue(after * 20 < before, roster.getFilename() + ": projections should weigh under 5% of the raw documents");
+        }
+    }
+
+    private JsonNode fixture(String name) throws IOException {
+        try (InputStream in = new ClassPathResource("blizzard/" + name).getInputStream()) {
+            return objectMapper.readTree(in);
+        }
+    }
+
+    private static JsonNode forCharacter(JsonNode fixture, String name, String realm) {
+        ObjectNode copy = fixture.deepCopy();
+        ObjectNode character = copy.has("character") ? (ObjectNode) copy.get("character") : copy;
+        character.put("name", name);
+        ((ObjectNode) character.get("realm")).put("name", realm).put("slug", CharacterNames.realmSlug(realm));
+        if (copy.has("name_search")) {
+            copy.put("name_search", CharacterNames.nameSlug(name));
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,182 @@
+package com.nl.wowapi.boble.service;
+
+import com.nl.wowapi.boble.model.CharacterHistory;
+import com.nl.wowapi.boble.model.HistoryPoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryFileTest {
+
+    private static final long T0 = 1_700_000_000L;
+    private static final long HOUR = 3600;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendedSamplesSurviveReopen() throws IOException {
+        Path path = dir.resolve("history.bin");
+        try (HistoryFile file = new HistoryFile(path)) {
+            assertTrue(file.append("tarren-mill_moph", "Moph", "Tarren Mill", T0, 610, 2500, 9512, 0));
+            assertTrue(file.append("draenor_bølle", "Bølle", "Draenor", T0 + 10, 600, 0, 0, 0));
+            // Decreasing values give negative deltas.
+            assertTrue(file.append("tarren-mill_moph", "Moph", "Tarren Mill", T0 + HOUR, 605, 2450, 8800, 0));
+            assertTrue(file.append("tarren-mill_moph", "Moph", "Tarren Mill", T0 + 2 * HOUR, 639, 3100, 9950, 0));
+        }
+
+        try (HistoryFile file = new HistoryFile(path)) {
+            CharacterHistory moph = file.read("tarren-mill_moph", 0, Long.MAX_VALUE);
+            assertEquals("Moph", moph.name());
+            assertEquals("Tarren Mill", moph.realm());
+            assertEquals(List.of(
+                    new HistoryPoint(Instant.ofEpochSecond(T0), 610, 2500, 95.12),
+                    new HistoryPoint(Instant.ofEpochSecond(T0 + HOUR), 605, 2450, 88.0),
+                    new HistoryPoint(Instant.ofEpochSecond(T0 + 2 * HOUR), 639, 3100, 99.5)), moph.points());
+
+            CharacterHistory bolle = file.read("draenor_bølle", 0, Long.MAX_VALUE);
+            assertEquals("Bølle", bolle.name());
+            assertEquals(1, bolle.points().size());
+
+            assertEquals(1, file.read("tarren-mill_moph", T0 + 1, T0 + HOUR).points().size());
+            assertNull(file.read("unknown", 0, Long.MAX_VALUE));
+
+            // Appending after a reopen continues the deltas of the loaded series.
+            assertTrue(file.append("tarren-mill_moph", "Moph", "Tarren Mill", T0 + 3 * HOUR, 640, 3150, 9960, 0));
+        }
+
+        try (HistoryFile file = new HistoryFile(path)) {
+            List<HistoryPoint> points = file.read("tarren-mill_moph", 0, Long.MAX_VALUE).points();
+            assertEquals(new HistoryPoint(Instant.ofEpochSecond(T0 + 3 * HOUR), 640, 3150, 99.6), points.get(3));
+        }
+    }
+
+    @Test
+    void unchangedSamplesWithinTheMinimumIntervalAreSkipped() throws IOException {
+        try (HistoryFile file = new HistoryFile(dir.resolve("history.bin"))) {
+            assertTrue(file.append("k", "Name", "Realm", T0, 610, 2500, 9000, HOUR));
+            assertFalse(file.append("k", "Name", "Realm", T0 + 60, 610, 2500, 9000, HOUR));
+            assertTrue(file.append("k", "Name", "Realm", T0 + 120, 611, 2500, 9000, HOUR));
+            assertTrue(file.append("k", "Name", "Realm", T0 + 120 + HOUR, 611, 2500, 9000, HOUR));
+            // Out of order samples are never written.
+            assertFalse(file.append("k", "Name", "Realm", T0, 700, 2500, 9000, HOUR));
+            assertEquals(3, file.read("k", 0, Long.MAX_VALUE).points().size());
+        }
+    }
+
+    @Test
+    void truncatedLastRecordIsDropped() throws IOException {
+        Path path = dir.resolve("history.bin");
+        try (HistoryFile file = new HistoryFile(path)) {
+            file.append("k", "Name", "Realm", T0, 610, 2500, 9000, 0);
+            file.append("k", "Name", "Realm", T0 + HOUR, 615, 2600, 9100, 0);
+        }
+        long sizeWithBoth = Files.size(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            // Cut into the last point record, as a crash in the middle of a write would.
+            channel.truncate(sizeWithBoth - 2);
+        }
+
+        try (HistoryFile file = new HistoryFile(path)) {
+            assertEquals(List.of(new HistoryPoint(Instant.ofEpochSecond(T0), 610, 2500, 90.0)),
+                    file.read("k", 0, Long.MAX_VALUE).points());
+            assertTrue(Files.size(path) < sizeWithBoth - 2);
+            file.append("k", "Name", "Realm", T0 + 2 * HOUR, 620, 2700, 9200, 0);
+        }
+
+        try (HistoryFile file = new HistoryFile(path)) {
+            List<HistoryPoint> points = file.read("k", 0, Long.MAX_VALUE).points();
+            assertEquals(2, points.size());
+            assertEquals(new HistoryPoint(Instant.ofEpochSecond(T0 + 2 * HOUR), 620, 2700, 92.0), points.get(1));
+        }
+    }
+
+    @Test
+    void corruptRecordsBeforeTheEndFailTheLoadInsteadOfBeingTruncated() throws IOException {
+        Path path = dir.resolve("history.bin");
+        try (HistoryFile file = new HistoryFile(path)) {
+            file.append("k", "Name", "Realm", T0, 610, 2500, 9000, 0);
+            file.append("k", "Name", "Realm", T0 + HOUR, 615, 2600, 9100, 0);
+            file.append("k", "Name", "Realm", T0 + 2 * HOUR, 620, 2700, 9200, 0);
+        }
+        long size = Files.size(path);
+        // Header (8 bytes) and the character record of "k" (14 bytes), then the tag of the first point.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{9}), 8 + 14);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> new HistoryFile(path));
+        assertTrue(e.getMessage().contains("offset 22"), e.getMessage());
+        assertEquals(size, Files.size(path));
+    }
+
+    @Test
+    void failedCompactionLeavesTheSamplesInMemory() throws IOException {
+        Path path = dir.resolve("history.bin");
+        long day = 24 * HOUR;
+        try (HistoryFile file = new HistoryFile(path)) {
+            file.append("a", "A", "Realm", T0, 600, 100, 0, 0);
+            file.append("a", "A", "Realm", T0 + 60, 601, 110, 0, 0);
+            file.append("a", "A", "Realm", T0 + 120, 602, 120, 0, 0);
+            // A directory where the rewritten file would go makes the rewrite fail.
+            Files.createDirectories(dir.resolve("history.bin.tmp").resolve("blocker"));
+
+            assertThrows(IOException.class, () -> file.compact(T0 + 2 * day, day));
+            assertEquals(List.of(600, 601, 602), itemLevels(file.read("a", 0, Long.MAX_VALUE)));
+
+            file.append("a", "A", "Realm", T0 + 180, 603, 130, 0, 0);
+        }
+        try (HistoryFile file = new HistoryFile(path)) {
+            assertEquals(List.of(600, 601, 602, 603), itemLevels(file.read("a", 0, Long.MAX_VALUE)));
+        }
+    }
+
+    @Test
+    void compactKeepsTheLastSamplePerBucket() throws IOException {
+        Path path = dir.resolve("history.bin");
+        long day = 24 * HOUR;
+        long start = (T0 / day) * day;
+        try (HistoryFile file = new HistoryFile(path)) {
+            // Day 0: three samples, day 1: two, day 2 (after the cutoff): two.
+            file.append("a", "A", "Realm", start + HOUR, 600, 100, 0, 0);
+            file.append("b", "B", "Realm", start + HOUR, 500, 0, 0, 0);
+            file.append("a", "A", "Realm", start + 2 * HOUR, 601, 110, 0, 0);
+            file.append("a", "A", "Realm", start + 3 * HOUR, 602, 120, 0, 0);
+            file.append("a", "A", "Realm", start + day + HOUR, 603, 130, 0, 0);
+            file.append("a", "A", "Realm", start + day + 2 * HOUR, 604, 140, 0, 0);
+            file.append("a", "A", "Realm", start + 2 * day + HOUR, 605, 150, 0, 0);
+            file.append("a", "A", "Realm", start + 2 * day + 2 * HOUR, 606, 160, 0, 0);
+
+            assertEquals(3, file.compact(start + 2 * day, day));
+            assertEquals(0, file.compact(start + 2 * day, day));
+            assertEquals(List.of(602, 604, 605, 606), itemLevels(file.read("a", 0, Long.MAX_VALUE)));
+
+            file.append("a", "A", "Realm", start + 3 * day, 607, 170, 0, 0);
+        }
+
+        // The rewritten file reloads with the same series, and appends after compaction landed in it.
+        try (HistoryFile file = new HistoryFile(path)) {
+            assertEquals(List.of(602, 604, 605, 606, 607), itemLevels(file.read("a", 0, Long.MAX_VALUE)));
+            assertEquals(List.of(500), itemLevels(file.read("b", 0, Long.MAX_VALUE)));
+            assertEquals(Instant.ofEpochSecond(start + 3 * HOUR), file.read("a", 0, Long.MAX_VALUE).points().get(0).timestamp());
+        }
+    }
+
+    private static List<Integer> itemLevels(CharacterHistory history) {
+        return history.points().stream().map(HistoryPoint::equippedItemLevel).toList();
+    }
+}
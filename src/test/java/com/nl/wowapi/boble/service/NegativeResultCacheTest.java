@@ -0,0 +1,95 @@
+package com.nl.wowapi.boble.service;
+
+import com.nl.wowapi.boble.model.CharacterIdentifier;
+import com.nl.wowapi.boble.model.Region;
+import com.nl.wowapi.boble.model.UnresolvedCharacter;
+import com.nl.wowapi.boble.model.UpstreamErrorClass;
+import com.nl.wowapi.boble.util.DeadlineTimeoutException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NegativeResultCacheTest {
+
+    private static final CharacterIdentifier MOPH = new CharacterIdentifier("Tarren Mill", "Moph", Region.EU);
+
+    private final NegativeResultCache cache = new NegativeResultCache(360, 30, 60, 60, 30);
+
+    @Test
+    void failuresAreRememberedForTheTtlOfTheirErrorClass() {
+        NegativeResultCache ttls = new NegativeResultCache(360, 30, 90, 45, 20);
+
+        assertRemembered(ttls, new HttpClientErrorException(HttpStatus.NOT_FOUND), UpstreamErrorClass.NOT_FOUND, 404,
+                Duration.ofMinutes(360));
+        assertRemembered(ttls, new HttpClientErrorException(HttpStatus.FORBIDDEN), UpstreamErrorClass.CLIENT_ERROR, 403,
+                Duration.ofMinutes(30));
+        assertRemembered(ttls, new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS), UpstreamErrorClass.RATE_LIMITED,
+                429, Duration.ofSeconds(90));
+        assertRemembered(ttls, new HttpServerErrorException(HttpStatus.BAD_GATEWAY), UpstreamErrorClass.SERVER_ERROR, 502,
+                Duration.ofSeconds(45));
+        assertRemembered(ttls, new ResourceAccessException("Connection refused"), UpstreamErrorClass.UNAVAILABLE, 0,
+                Duration.ofSeconds(20));
+    }
+
+    @Test
+    void expiredTokensAndUnknownFailuresAreNotRemembered() {
+        cache.record(NegativeResultCache.PROFILE, Region.EU, "Tarren Mill", "Moph",
+                new HttpClientErrorException(HttpStatus.UNAUTHORIZED));
+        cache.record(NegativeResultCache.PROFILE, Region.EU, "Tarren Mill", "Moph", new IllegalStateException("bug"));
+
+        assertTrue(cache.getUnresolved(List.of(MOPH)).isEmpty());
+    }
+
+    @Test
+    void checkFailsUntilTheCharacterIsEvicted() {
+        cache.record(NegativeResultCache.MYTHIC, Region.EU, "Tarren Mill", "Moph",
+                new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+        UnresolvedCharacterException e = assertThrows(UnresolvedCharacterException.class,
+                () -> cache.check(NegativeResultCache.MYTHIC, Region.EU, "tarren-mill", "moph"));
+        assertEquals(UpstreamErrorClass.NOT_FOUND, e.getUnresolved().errorClass());
+        // Other lookups of the same character are unaffected.
+        assertDoesNotThrow(() -> cache.check(NegativeResultCache.PROFILE, Region.EU, "Tarren Mill", "Moph"));
+
+        cache.evict(Region.EU, "Tarren Mill", "Moph");
+        assertDoesNotThrow(() -> cache.check(NegativeResultCache.MYTHIC, Region.EU, "Tarren Mill", "Moph"));
+    }
+
+    @Test
+    void timeoutsCutShortByTheDeadlineAreNotRemembered() {
+        cache.record(NegativeResultCache.PROFILE, Region.EU, "Tarren Mill", "Moph", new ResourceAccessException(
+                "I/O error", new DeadlineTimeoutException(new SocketTimeoutException("Read timed out"))));
+
+        assertTrue(cache.getUnresolved(List.of(MOPH)).isEmpty());
+    }
+
+    @Test
+    void otherTimeoutsAreRemembered() {
+        cache.record(NegativeResultCache.PROFILE, Region.EU, "Tarren Mill", "Moph",
+                new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")));
+
+        assertEquals(1, cache.getUnresolved(List.of(MOPH)).size());
+    }
+
+    private static void assertRemembered(NegativeResultCache cache, Exception failure, UpstreamErrorClass errorClass,
+                                         int status, Duration ttl) {
+        cache.record(NegativeResultCache.PROFILE, Region.EU, "Tarren Mill", "Moph", failure);
+
+        List<UnresolvedCharacter> unresolved = cache.getUnresolved(List.of(MOPH));
+        assertEquals(1, unresolved.size());
+        assertEquals(errorClass, unresolved.get(0).errorClass());
+        assertEquals(status, unresolved.get(0).status());
+        assertEquals(ttl, Duration.between(unresolved.get(0).since(), unresolved.get(0).retryAfter()));
+    }
+}
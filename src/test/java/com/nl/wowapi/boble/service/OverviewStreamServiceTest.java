@@ -0,0 +1,257 @@
+package com.nl.wowapi.boble.service;
+
+import com.nl.wowapi.boble.model.CharacterOverviewDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the stream service against a stubbed overview, with emitters that record what would have been written.
+ */
+class OverviewStreamServiceTest {
+
+    private static final String TEAM = "boble";
+
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+    // Handed out by the next subscriptions before any new emitter.
+    private final Queue<RecordingEmitter> prepared = new ConcurrentLinkedQueue<>();
+    private volatile TeamSnapshot current = snapshot(2500);
+    private OverviewStreamService service;
+
+    @BeforeEach
+    void setUp() {
+        TeamOverviewService teamOverviewService = new TeamOverviewService(null, null, null, null, null, null, 1) {
+            @Override
+            public TeamSnapshot getSnapshot(String team, Long deadlineMs) {
+                return current;
+            }
+
+            @Override
+            public void recordView(String team) {
+            }
+        };
+        service = new OverviewStreamService(teamOverviewService, new RosterService(), 2) {
+            @Override
+            SseEmitter newEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = prepared.poll();
+                if (emitter == null) {
+                    emitter = new RecordingEmitter();
+                }
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+        ReflectionTestUtils.setField(service, "timeoutMinutes", 30L);
+        ReflectionTestUtils.setField(service, "replaySize", 256);
+        ReflectionTestUtils.setField(service, "reconnectMs", 3000L);
+        ReflectionTestUtils.setField(service, "queueSize", 64);
+        ReflectionTestUtils.setField(service, "refreshSeconds", 60L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void reconnectingWithLastEventIdReplaysOnlyTheMissedEvents() throws Exception {
+        RecordingEmitter first = subscribe(null);
+        next(first);
+        publish(2510);
+        String seen = id(next(first));
+        publish(2520);
+
+        RecordingEmitter second = subscribe(seen);
+        String replayed = next(second);
+        assertTrue(replayed.contains("event:" + OverviewStreamService.CHANGE_EVENT), replayed);
+        assertTrue(replayed.contains("mythicRating=2520"), replayed);
+        assertNull(second.events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void aSubscriberWhoseQueueOverflowsIsDroppedWithoutHoldingUpTheOthers() throws Exception {
+        ReflectionTestUtils.setField(service, "queueSize", 2);
+        RecordingEmitter slow = new RecordingEmitter();
+        slow.stalled = new CountDownLatch(1);
+        prepared.add(slow);
+        subscribe(null);
+        RecordingEmitter fast = subscribe(null);
+        next(fast);
+        assertTrue(slow.writing.await(5, TimeUnit.SECONDS));
+
+        // The slow client's snapshot is still being written; its queue takes two changes, the third drops it.
+        for (int rating = 2501; rating <= 2504; rating++) {
+            publish(rating);
+            assertTrue(next(fast).contains("mythicRating=" + rating));
+        }
+
+        slow.stalled.countDown();
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+        String snapshotId = id(next(slow));
+        assertNull(slow.events.poll(200, TimeUnit.MILLISECONDS));
+
+        // Too many events were missed to replay, so the reconnect gets a new snapshot.
+        String resent = next(subscribe(snapshotId));
+        assertTrue(resent.contains("event:" + OverviewStreamService.SNAPSHOT_EVENT), resent);
+        assertTrue(resent.contains("mythicRating=2504"), resent);
+    }
+
+    @Test
+    void reconnectingWithinTheGracePeriodReplaysTheMissedEvents() throws Exception {
+        String snapshotId = id(next(subscribe(null)));
+        emitters.get(0).complete();
+
+        publish(2510);
+        service.sendHeartbeats();
+
+        String replayed = next(subscribe(snapshotId));
+        assertTrue(replayed.contains("event:" + OverviewStreamService.CHANGE_EVENT), replayed);
+        assertTrue(replayed.contains("mythicRating=2510"), replayed);
+        assertEquals(generation(snapshotId), generation(id(replayed)));
+    }
+
+    @Test
+    void channelsWithoutSubscribersAreClosedAfterTheGracePeriod() throws Exception {
+        ReflectionTestUtils.setField(service, "refreshSeconds", 0L);
+        String snapshotId = id(next(subscribe(null)));
+        emitters.get(0).complete();
+
+        service.sendHeartbeats();
+
+        // The old generation is gone, so the client gets a full snapshot from the new channel.
+        String resent = next(subscribe(snapshotId));
+        assertTrue(resent.contains("event:" + OverviewStreamService.SNAPSHOT_EVENT), resent);
+        assertNotEquals(generation(snapshotId), generation(id(resent)));
+    }
+
+    @Test
+    void displayAdjustmentsAreNotChanges() {
+        CharacterOverviewDto before = adjusted(row(2500, 80.0), 2310, 71.0);
+        CharacterOverviewDto after = adjusted(row(2500, 80.0), 2420, 66.0);
+
+        assertFalse(OverviewStreamService.changed(before, after));
+        assertTrue(OverviewStreamService.changed(before, adjusted(row(2510, 80.0), 2420, 66.0)));
+        assertTrue(OverviewStreamService.changed(before, row(2500, 81.5)));
+    }
+
+    private RecordingEmitter subscribe(String lastEventId) {
+        service.subscribe(TEAM, lastEventId);
+        return emitters.get(emitters.size() - 1);
+    }
+
+    private void publish(int mythicRating) {
+        current = snapshot(mythicRating);
+        service.onSnapshotRebuilt(new TeamSnapshotRebuiltEvent(TEAM, current));
+    }
+
+    // The next event written to the emitter, skipping heartbeats.
+    private static String next(RecordingEmitter emitter) throws InterruptedException {
+        while (true) {
+            String event = emitter.events.poll(5, TimeUnit.SECONDS);
+            if (event == null) {
+                throw new AssertionError("No event written");
+            }
+            if (!event.startsWith(":")) {
+                return event;
+            }
+        }
+    }
+
+    private static String id(String event) {
+        for (String line : event.split("\n")) {
+            if (line.startsWith("id:")) {
+                return line.substring(3);
+            }
+        }
+        throw new AssertionError("No id in " + event);
+    }
+
+    private static String generation(String eventId) {
+        return eventId.substring(0, eventId.indexOf('-'));
+    }
+
+    private static TeamSnapshot snapshot(int mythicRating) {
+        return new TeamSnapshot(List.of(row(mythicRating, 80.0)), Instant.now());
+    }
+
+    private static CharacterOverviewDto row(int mythicRating, double bestPerfAvgScore) {
+        return new CharacterOverviewDto("Hodevine", "Priest", "Draenor", 639, "/icons/priest.png", mythicRating,
+                "rgba(255,128,0,1.00)", "Holy", "Healer", bestPerfAvgScore);
+    }
+
+    private static CharacterOverviewDto adjusted(CharacterOverviewDto row, int mythicRating, double bestPerfAvgScore) {
+        row.setUnadjustedMythicRating(row.getMythicRating());
+        row.setUnadjustedBestPerfAvgScore(row.getBestPerfAvgScore());
+        row.setMythicRating(mythicRating);
+        row.setBestPerfAvgScore(bestPerfAvgScore);
+        return row;
+    }
+
+    /**
+     * Records the text of each event instead of writing it to a response, and runs the completion callback
+     * on {@link #complete()} the way the servlet container would.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        final CountDownLatch writing = new CountDownLatch(1);
+        // While set, writes wait for it, like writes to a client that stopped reading.
+        volatile CountDownLatch stalled;
+        private Runnable completionCallback;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            writing.countDown();
+            CountDownLatch gate = stalled;
+            if (gate != null) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            for (DataWithMediaType data : builder.build()) {
+                text.append(data.getData());
+            }
+            events.add(text.toString());
+        }
+
+        @Override
+        public synchronized void onCompletion(Runnable callback) {
+            completionCallback = callback;
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+            Runnable callback;
+            synchronized (this) {
+                callback = completionCallback;
+            }
+            if (callback != null) {
+                callback.run();
+            }
+        }
+    }
+}
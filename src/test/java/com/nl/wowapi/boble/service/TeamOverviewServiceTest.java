@@ -0,0 +1,142 @@
+package com.nl.wowapi.boble.service;
+
+import com.nl.wowapi.boble.model.CharacterIdentifier;
+import com.nl.wowapi.boble.model.CharacterOverviewDto;
+import com.nl.wowapi.boble.model.Region;
+import com.nl.wowapi.boble.util.Deadline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rebuilds a three character team whose middle character is slow to load, to see what a request gets back
+ * when the rebuild misses its deadline.
+ */
+class TeamOverviewServiceTest {
+
+    private static final String TEAM = "boble";
+    private static final List<CharacterIdentifier> ROSTER = List.of(
+            new CharacterIdentifier("Draenor", "Elyada", Region.EU),
+            new CharacterIdentifier("Draenor", "Dixis", Region.EU),
+            new CharacterIdentifier("Draenor", "Lynpil", Region.EU));
+    private static final String SLOW = "Dixis";
+
+    private final Map<String, Integer> itemLevels = new ConcurrentHashMap<>();
+    private final BlockingQueue<Duration> upstreamTimeLeft = new LinkedBlockingQueue<>();
+    private final BlockingQueue<TeamSnapshotRebuiltEvent> rebuilt = new LinkedBlockingQueue<>();
+    private volatile CountDownLatch slowCharacter = new CountDownLatch(1);
+    private TeamOverviewService service;
+
+    @BeforeEach
+    void setUp() {
+        RosterService rosterService = new RosterService() {
+            @Override
+            public List<CharacterIdentifier> getRoster(String team) {
+                return ROSTER;
+            }
+        };
+        CharacterOverviewService characterOverviewService = new CharacterOverviewService(null, null, null, null) {
+            @Override
+            public CharacterOverviewDto getCharacterOverview(String realm, String characterName, Region region) {
+                upstreamTimeLeft.add(Deadline.remaining());
+                if (SLOW.equals(characterName)) {
+                    try {
+                        slowCharacter.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                CharacterOverviewDto row = new CharacterOverviewDto(characterName, "Mage", realm,
+                        itemLevels.getOrDefault(characterName, 630), "/icons/mage.png", 2500,
+                        "rgba(255,128,0,1.00)", "Frost", "DPS", 80.0);
+                row.setRegion(region);
+                return row;
+            }
+        };
+        ClassIconService classIconService = new ClassIconService() {
+            @Override
+            public String getIconUrl(String className) {
+                return "/icons/default.png";
+            }
+        };
+        service = new TeamOverviewService(rosterService, characterOverviewService, null, classIconService, null,
+                event -> rebuilt.add((TeamSnapshotRebuiltEvent) event), 4);
+        ReflectionTestUtils.setField(service, "snapshotTtlSeconds", 60L);
+        ReflectionTestUtils.setField(service, "defaultDeadlineMs", 3000L);
+        ReflectionTestUtils.setField(service, "maxDeadlineMs", 30000L);
+        ReflectionTestUtils.setField(service, "backgroundGraceMs", 15000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowCharacter.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void aMissedDeadlineReturnsThePartialSnapshotAndTheRebuildCarriesOn() throws Exception {
+        TeamSnapshot partial = service.getSnapshot(TEAM, 200L);
+
+        assertFalse(partial.isComplete());
+        assertEquals(List.of("Elyada", "Dixis", "Lynpil"), names(partial));
+        assertFalse(partial.getRows().get(0).isIncomplete());
+        CharacterOverviewDto placeholder = partial.getRows().get(1);
+        assertTrue(placeholder.isIncomplete());
+        assertEquals("Draenor", placeholder.getRealm());
+        assertEquals(0, placeholder.getEquippedItemLevel());
+        // The upstream calls get the request deadline plus the background grace period.
+        for (int i = 0; i < ROSTER.size(); i++) {
+            Duration left = upstreamTimeLeft.poll(5, TimeUnit.SECONDS);
+            assertNotNull(left);
+            assertTrue(left.toMillis() > 10_000 && left.toMillis() <= 15_200, left.toString());
+        }
+
+        slowCharacter.countDown();
+        TeamSnapshotRebuiltEvent event = rebuilt.poll(5, TimeUnit.SECONDS);
+        assertNotNull(event);
+        TeamSnapshot complete = service.getSnapshot(TEAM, 200L);
+        assertSame(event.snapshot(), complete);
+        assertTrue(complete.isComplete());
+        assertTrue(complete.getRows().stream().noneMatch(CharacterOverviewDto::isIncomplete));
+    }
+
+    @Test
+    void slowCharactersKeepTheirLastKnownRowWhenAStaleSnapshotIsRebuilt() throws Exception {
+        slowCharacter.countDown();
+        service.getSnapshot(TEAM, 5000L);
+        assertNotNull(rebuilt.poll(5, TimeUnit.SECONDS));
+
+        ReflectionTestUtils.setField(service, "snapshotTtlSeconds", 0L);
+        slowCharacter = new CountDownLatch(1);
+        itemLevels.put("Elyada", 640);
+        itemLevels.put(SLOW, 641);
+        TeamSnapshot partial = service.getSnapshot(TEAM, 200L);
+
+        assertFalse(partial.isComplete());
+        assertEquals(640, partial.getRows().get(0).getEquippedItemLevel());
+        CharacterOverviewDto lastKnown = partial.getRows().get(1);
+        assertTrue(lastKnown.isIncomplete());
+        assertEquals(630, lastKnown.getEquippedItemLevel());
+        assertEquals("Frost", lastKnown.getActiveSpec());
+    }
+
+    private static List<String> names(TeamSnapshot snapshot) {
+        return snapshot.getRows().stream().map(CharacterOverviewDto::getName).toList();
+    }
+}
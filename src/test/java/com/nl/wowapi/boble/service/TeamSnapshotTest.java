@@ -0,0 +1,96 @@
+package com.nl.wowapi.boble.service;
+
+import com.nl.wowapi.boble.model.CharacterOverviewDto;
+import com.nl.wowapi.boble.model.OverviewPage;
+import com.nl.wowapi.boble.model.OverviewQuery;
+import com.nl.wowapi.boble.model.OverviewSortField;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TeamSnapshotTest {
+
+    // Roster order: a, b, c, d, e.
+    private final TeamSnapshot snapshot = new TeamSnapshot(List.of(
+            row("a", "Mage", "Tarren Mill", 610, 2500, "DPS", 80.0),
+            row("b", "Priest", "Draenor", 630, 3100, "Healer", 95.5),
+            row("c", "Warrior", "Tarren Mill", 620, 1800, "Tank", 60.0),
+            row("d", "Druid", "Silvermoon", 600, 2900, "Healer", 70.0),
+            row("e", "Mage", "Draenor", 640, 2000, "DPS", 99.0)), Instant.now());
+
+    @Test
+    void withoutSortRowsStayInRosterOrder() {
+        assertEquals(List.of("a", "b", "c", "d", "e"), names(snapshot.query(query(null, null, null, null, null, null, null), null)));
+    }
+
+    @Test
+    void sortsAscendingAndDescendingFromThePrecomputedOrder() {
+        assertEquals(List.of("b", "d", "a", "e", "c"),
+                names(snapshot.query(query("mythicRating", "desc", null, null, null, null, null), OverviewSortField.MYTHIC_RATING)));
+        // Descending is the default order.
+        assertEquals(List.of("e", "b", "c", "a", "d"),
+                names(snapshot.query(query("equippedItemLevel", null, null, null, null, null, null), OverviewSortField.EQUIPPED_ITEM_LEVEL)));
+        assertEquals(List.of("c", "d", "a", "b", "e"),
+                names(snapshot.query(query("bestPerfAvgScore", "asc", null, null, null, null, null), OverviewSortField.BEST_PERF_AVG_SCORE)));
+    }
+
+    @Test
+    void pagesOverTheSortedAndFilteredRows() {
+        OverviewPage page = snapshot.query(query("mythicRating", "desc", null, null, null, 1, 2), OverviewSortField.MYTHIC_RATING);
+        assertEquals(List.of("a", "e"), names(page));
+        assertEquals(5, page.total());
+
+        OverviewPage last = snapshot.query(query("mythicRating", "desc", null, null, null, 2, 2), OverviewSortField.MYTHIC_RATING);
+        assertEquals(List.of("c"), names(last));
+    }
+
+    @Test
+    void pagesBeyondTheEndAreEmptyButKeepTheTotal() {
+        OverviewPage page = snapshot.query(query(null, null, List.of("Healer"), null, null, 3, 2), null);
+        assertEquals(List.of(), names(page));
+        assertEquals(2, page.total());
+    }
+
+    @Test
+    void filterValuesOfOneFieldAreAlternativesAndFieldsCombine() {
+        assertEquals(List.of("b", "c", "d"),
+                names(snapshot.query(query(null, null, List.of("Healer", "Tank"), null, null, null, null), null)));
+        assertEquals(List.of("b", "c"),
+                names(snapshot.query(query(null, null, List.of("Healer", "Tank"), null, List.of("Draenor", "Tarren Mill"), null, null), null)));
+        assertEquals(List.of("a", "e"),
+                names(snapshot.query(query(null, null, null, List.of("Mage", "Paladin"), null, null, null), null)));
+    }
+
+    @Test
+    void filtersMatchCaseInsensitively() {
+        assertEquals(List.of("b", "d"),
+                names(snapshot.query(query(null, null, List.of(" hEaLeR"), null, null, null, null), null)));
+        assertEquals(List.of("a", "c"),
+                names(snapshot.query(query(null, null, null, null, List.of("TARREN MILL"), null, null), null)));
+    }
+
+    @Test
+    void unknownFilterValuesMatchNothing() {
+        OverviewPage page = snapshot.query(query(null, null, List.of("Bard"), null, null, null, null), null);
+        assertEquals(List.of(), names(page));
+        assertEquals(0, page.total());
+    }
+
+    private static OverviewQuery query(String sort, String order, List<String> role, List<String> className,
+                                       List<String> realm, Integer page, Integer size) {
+        return new OverviewQuery(sort, order, role, className, realm, page, size);
+    }
+
+    private static List<String> names(OverviewPage page) {
+        return page.rows().stream().map(CharacterOverviewDto::getName).toList();
+    }
+
+    private static CharacterOverviewDto row(String name, String className, String realm, int itemLevel, int rating,
+                                            String role, double score) {
+        return new CharacterOverviewDto(name, className, realm, itemLevel, null, rating, "rgba(255,255,255,1)",
+                "spec", role, score);
+    }
+}
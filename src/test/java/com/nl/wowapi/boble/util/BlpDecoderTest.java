@@ -0,0 +1,91 @@
+package com.nl.wowapi.boble.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlpDecoderTest {
+
+    private static final int HEADER_SIZE = 156 + 256 * 4;
+
+    @Test
+    void decodesEveryBundledIcon() throws IOException {
+        Resource[] icons = new PathMatchingResourcePatternResolver().getResources("classpath*:icons/*.blp");
+        assertTrue(icons.length > 0);
+        for (Resource icon : icons) {
+            BufferedImage image;
+            try (InputStream in = icon.getInputStream()) {
+                image = BlpDecoder.decode(in.readAllBytes());
+            }
+            assertTrue(image.getWidth() > 0 && image.getHeight() > 0, icon.getFilename());
+            // The centre of a class icon is never transparent.
+            assertTrue(image.getRGB(image.getWidth() / 2, image.getHeight() / 2) >>> 24 > 0, icon.getFilename());
+        }
+    }
+
+    @Test
+    void mapsPaletteIndicesAndAlphaAtEachDepth() {
+        // Pixels use palette entries 0..3; the alpha channel is 0, 1/3, 2/3 and full.
+        int[] indices = {0, 1, 2, 3};
+        assertPixels(BlpDecoder.decode(blp(8, indices, new byte[]{0, 85, (byte) 170, (byte) 255})), 0, 85, 170, 255);
+        assertPixels(BlpDecoder.decode(blp(4, indices, new byte[]{0x50, (byte) 0xFA})), 0, 85, 170, 255);
+        assertPixels(BlpDecoder.decode(blp(1, indices, new byte[]{0b1010})), 0, 255, 0, 255);
+        assertPixels(BlpDecoder.decode(blp(0, indices, new byte[0])), 255, 255, 255, 255);
+    }
+
+    @Test
+    void rejectsFilesItCannotDecode() {
+        assertThrows(IllegalArgumentException.class, () -> BlpDecoder.decode("BLP2".repeat(300).getBytes()));
+
+        byte[] jpegCompressed = blp(8, new int[]{0, 1, 2, 3}, new byte[4]);
+        ByteBuffer.wrap(jpegCompressed).order(ByteOrder.LITTLE_ENDIAN).putInt(4, 0);
+        assertThrows(IllegalArgumentException.class, () -> BlpDecoder.decode(jpegCompressed));
+
+        byte[] full = blp(8, new int[]{0, 1, 2, 3}, new byte[4]);
+        assertThrows(IllegalArgumentException.class, () -> BlpDecoder.decode(Arrays.copyOf(full, full.length - 1)));
+    }
+
+    private static void assertPixels(BufferedImage image, int... alphas) {
+        assertEquals(2, image.getWidth());
+        assertEquals(2, image.getHeight());
+        for (int i = 0; i < 4; i++) {
+            int argb = image.getRGB(i % 2, i / 2);
+            assertEquals(alphas[i], argb >>> 24, "alpha of pixel " + i);
+            assertEquals(color(i), argb & 0x00FFFFFF, "color of pixel " + i);
+        }
+    }
+
+    private static int color(int paletteIndex) {
+        return 0x102030 * (paletteIndex + 1);
+    }
+
+    // A 2x2 palettized BLP1 with one mipmap right after the palette.
+    private static byte[] blp(int alphaBits, int[] indices, byte[] alpha) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + indices.length + alpha.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("BLP1".getBytes());
+        buffer.putInt(1).putInt(alphaBits).putInt(2).putInt(2).putInt(4).putInt(0);
+        buffer.putInt(28, HEADER_SIZE);
+        buffer.putInt(28 + 16 * 4, indices.length + alpha.length);
+        for (int i = 0; i < 4; i++) {
+            // BGRA, with an alpha byte the decoder must ignore.
+            buffer.putInt(156 + i * 4, 0x7F000000 | color(i));
+        }
+        buffer.position(HEADER_SIZE);
+        for (int index : indices) {
+            buffer.put((byte) index);
+        }
+        buffer.put(alpha);
+        return buffer.array();
+    }
+}
@@ -0,0 +1,27 @@
+package com.nl.wowapi.boble.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestTraceTest {
+
+    @Test
+    void logNotesStayOutOfServerTiming() {
+        RequestTrace trace = new RequestTrace("0af7651916cd43dd8448eb211c80319c");
+        RequestTrace.call(trace, () -> {
+            RequestTrace.note("joined rebuild");
+            RequestTrace.logNote("joined rebuild of trace 4bf92f3577b34da6a3ce929d0e0e4736");
+            return null;
+        });
+
+        String serverTiming = trace.serverTiming();
+        assertTrue(serverTiming.contains("joined rebuild"), serverTiming);
+        assertFalse(serverTiming.contains("4bf92f3577b34da6a3ce929d0e0e4736"), serverTiming);
+        assertEquals(List.of("joined rebuild of trace 4bf92f3577b34da6a3ce929d0e0e4736"), trace.getLogNotes());
+    }
+}